@@ -31,7 +31,7 @@ public final class AntiDupe extends JavaPlugin {
     public void onEnable() {
         this.configManager = new ConfigManager(this);
         this.itemRegistry = new ItemRegistry(this);
-        this.redisManager = new RedisManager(configManager, itemRegistry);
+        this.redisManager = new RedisManager(this);
         this.dupeDebugManager = new DupeDebugManager(this, configManager);
         this.trackingListener = new ItemTrackingListener(itemRegistry, configManager, dupeDebugManager);
         this.protectionListener = new AdvancedProtectionListener(this, configManager, dupeDebugManager);
@@ -57,14 +57,13 @@ public final class AntiDupe extends JavaPlugin {
     @Override
     public void onDisable() {
         if (redisManager != null) {
-            redisManager.close();
+            redisManager.stopEventStream(); // no remote merges while the registry flushes and closes
         }
         if (itemRegistry != null) {
-            CompletableFuture.runAsync(itemRegistry::shutdown)
-                    .exceptionally(throwable -> {
-                        getSLF4JLogger().error("Error during shutdown", throwable);
-                        return null;
-                    });
+            itemRegistry.shutdown();
+        }
+        if (redisManager != null) {
+            redisManager.close(); // after the registry, so its last writes still reach Redis
         }
         if (trackingListener != null) {
             trackingListener.cleanup();
@@ -82,10 +81,11 @@ public final class AntiDupe extends JavaPlugin {
         getServer().getPluginManager().registerEvents(protectionListener, this);
         getServer().getPluginManager().registerEvents(antiCheatListener, this);
         getServer().getPluginManager().registerEvents(dupeDebugManager, this);
+        redisManager.startEventStream();
 
-        Objects.requireNonNull(getCommand("id")).setExecutor(new IdCommand(itemRegistry, configManager));
+        Objects.requireNonNull(getCommand("id")).setExecutor(new IdCommand(itemRegistry, configManager, redisManager));
         Objects.requireNonNull(getCommand("item")).setExecutor(new ItemCommand(itemRegistry, configManager));
-        Objects.requireNonNull(getCommand("antidupe")).setExecutor(new AdminCommand(itemRegistry, configManager));
+        Objects.requireNonNull(getCommand("antidupe")).setExecutor(new AdminCommand(itemRegistry, configManager, redisManager));
         Objects.requireNonNull(getCommand("dupe")).setExecutor(new DupeCommand(dupeDebugManager, itemRegistry, configManager));
         Objects.requireNonNull(getCommand("dupe")).setTabCompleter(new DupeCommand(dupeDebugManager, itemRegistry, configManager));
         Objects.requireNonNull(getCommand("announce")).setExecutor(new AnnounceCommand(configManager));
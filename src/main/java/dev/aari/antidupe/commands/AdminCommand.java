@@ -2,6 +2,7 @@ package dev.aari.antidupe.commands;
 
 import dev.aari.antidupe.config.ConfigManager;
 import dev.aari.antidupe.data.ItemRegistry;
+import dev.aari.antidupe.redis.RedisManager;
 import dev.aari.antidupe.util.ColorUtil;
 import it.unimi.dsi.fastutil.objects.Object2LongMap;
 import org.bukkit.command.Command;
@@ -13,10 +14,12 @@ public final class AdminCommand implements CommandExecutor {
 
     private final ItemRegistry itemRegistry;
     private final ConfigManager configManager;
+    private final RedisManager redisManager;
 
-    public AdminCommand(ItemRegistry itemRegistry, ConfigManager configManager) {
+    public AdminCommand(ItemRegistry itemRegistry, ConfigManager configManager, RedisManager redisManager) {
         this.itemRegistry = itemRegistry;
         this.configManager = configManager;
+        this.redisManager = redisManager;
     }
 
     @Override
@@ -59,9 +62,61 @@ public final class AdminCommand implements CommandExecutor {
 
         sender.sendMessage(ColorUtil.translateColorCodes("&#ffa502Item Tracking Statistics:"));
 
+        ItemRegistry.LoadState loadState = itemRegistry.getLoadState();
+        if (loadState != ItemRegistry.LoadState.READY) {
+            sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cRegistry: &#ffa502" + loadState
+                    + " &#747d8c(" + Math.round(itemRegistry.getLoadProgress() * 100) + "%)"));
+        }
+
         long totalItems = stats.values().longStream().sum();
         sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cTotal tracked items: &#ffffff" + totalItems));
 
+        ItemRegistry.FlushStats flush = itemRegistry.getFlushStats();
+        sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cPending writes: &#ffffff" + flush.pendingMutations()
+                + " &#747d8c(flush lag &#ffffff" + flush.currentLagMillis() + "ms&#747d8c, last &#ffffff"
+                + flush.lastLagMillis() + "ms&#747d8c, max &#ffffff" + flush.maxLagMillis() + "ms&#747d8c)"));
+
+        ItemRegistry.PipelineStats pipeline = itemRegistry.getPipelineStats();
+        sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cRegistration queue: &#ffffff" + pipeline.queued()
+                + " &#747d8c(registered &#ffffff" + pipeline.registered() + "&#747d8c, dropped &#ffffff"
+                + pipeline.dropped() + "&#747d8c, ids awaiting stamp &#ffffff" + pipeline.pendingStamps() + "&#747d8c)"));
+
+        if (redisManager.isEnabled()) {
+            RedisManager.CacheStats cache = redisManager.getNearCacheStats();
+            sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cNetwork cache: &#ffffff" + cache.size() + "/"
+                    + cache.capacity() + " &#747d8c(hit rate &#ffffff" + Math.round(cache.hitRate() * 100) + "%&#747d8c)"));
+
+            RedisManager.StreamStats stream = redisManager.getStreamStats();
+            sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cNetwork events: &#ffffff" + stream.consumed()
+                    + " &#747d8c(merged &#ffffff" + stream.merged() + "&#747d8c, last event &#ffffff"
+                    + (stream.lastEventMillis() == 0L ? "never" : (System.currentTimeMillis() - stream.lastEventMillis()) / 1000L + "s ago")
+                    + "&#747d8c)"));
+        }
+
+        ItemRegistry.TierStats tiers = itemRegistry.getTierStats();
+        if (tiers != null) {
+            sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cHot tier: &#ffffff" + tiers.hotItems() + "/"
+                    + tiers.hotCapacity() + " &#747d8c(hits &#ffffff" + tiers.hits() + "&#747d8c, misses &#ffffff"
+                    + tiers.misses() + "&#747d8c, hit rate &#ffffff" + Math.round(tiers.hitRate() * 100) + "%&#747d8c)"));
+        }
+
+        ItemRegistry.FilterStats filter = itemRegistry.getFilterStats();
+        if (filter != null) {
+            sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cDuplicate filter: &#ffffff" + filter.negatives()
+                    + "/" + filter.checks() + " &#747d8cchecks skipped (observed: &#ffffff"
+                    + String.format("%.3f", filter.observedFalsePositiveRate() * 100)
+                    + "% &#747d8cof passed checks found no duplicate, estimated: &#ffffff"
+                    + String.format("%.3f", filter.estimatedFalsePositiveRate() * 100)
+                    + "% &#747d8cof unique items pass, "
+                    + filter.memoryBytes() / 1024 + " KB)"));
+        }
+
+        int pendingMigrations = itemRegistry.getPendingFingerprintMigrations();
+        if (pendingMigrations > 0) {
+            sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cFingerprints awaiting migration: &#ffffff"
+                    + pendingMigrations));
+        }
+
         sender.sendMessage(ColorUtil.translateColorCodes("&#747d8cTop item types:"));
         stats.object2LongEntrySet().stream()
                 .sorted((a, b) -> Long.compare(b.getLongValue(), a.getLongValue()))
@@ -5,6 +5,7 @@ import dev.aari.antidupe.data.ItemRegistry;
 import dev.aari.antidupe.managers.DupeDebugManager;
 import dev.aari.antidupe.util.ColorUtil;
 import dev.aari.antidupe.util.ItemIdentifier;
+import dev.aari.antidupe.util.ItemSnapshot;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -16,9 +17,11 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public final class DupeCommand implements CommandExecutor, TabCompleter {
@@ -26,6 +29,8 @@ public final class DupeCommand implements CommandExecutor, TabCompleter {
     private final DupeDebugManager debugManager;
     private final ItemRegistry itemRegistry;
     private final ConfigManager configManager;
+    private final AtomicBoolean refreshingDuplicateIds = new AtomicBoolean();
+    private volatile List<String> duplicateIds = List.of();
 
     public DupeCommand(DupeDebugManager debugManager, ItemRegistry itemRegistry, ConfigManager configManager) {
         this.debugManager = debugManager;
@@ -79,6 +84,7 @@ public final class DupeCommand implements CommandExecutor, TabCompleter {
         boolean enabled = debugManager.toggleDebugMode(player);
         if (enabled) {
             sender.sendMessage(configManager.getMessage("debug-mode-enabled"));
+            debugManager.scanInventory(player);
         } else {
             sender.sendMessage(configManager.getMessage("debug-mode-disabled"));
             for (ItemStack item : player.getInventory().getContents()) {
@@ -115,29 +121,34 @@ public final class DupeCommand implements CommandExecutor, TabCompleter {
 
         sender.sendMessage(configManager.getMessage("scanning-inventory", "player", target.getName()));
 
+        List<String> types = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (ItemStack item : target.getInventory().getContents()) {
+            if (item == null || item.getType().isAir()) continue;
+
+            Long itemId = ItemIdentifier.getItemId(item);
+            if (itemId != null) {
+                types.add(item.getType().name());
+                ids.add(itemId);
+            }
+        }
+
         CompletableFuture.runAsync(() -> {
+            List<List<ItemRegistry.TrackedItem>> duplicates =
+                    itemRegistry.findDuplicates(ids.stream().mapToLong(Long::longValue).toArray());
             int suspiciousItems = 0;
-            int totalTracked = 0;
-
-            for (ItemStack item : target.getInventory().getContents()) {
-                if (item == null || item.getType().isAir()) continue;
-
-                Long itemId = ItemIdentifier.getItemId(item);
-                if (itemId != null) {
-                    totalTracked++;
-                    List<ItemRegistry.TrackedItem> duplicates = itemRegistry.findDuplicates(itemId);
-                    if (!duplicates.isEmpty()) {
-                        suspiciousItems++;
-                        sender.sendMessage(configManager.getMessage("suspicious-item",
-                                "item", item.getType().name(),
-                                "id", itemId,
-                                "count", duplicates.size()));
-                    }
+            for (int i = 0; i < duplicates.size(); i++) {
+                if (!duplicates.get(i).isEmpty()) {
+                    suspiciousItems++;
+                    sender.sendMessage(configManager.getMessage("suspicious-item",
+                            "item", types.get(i),
+                            "id", ids.get(i),
+                            "count", duplicates.get(i).size()));
                 }
             }
 
             sender.sendMessage(configManager.getMessage("scan-complete",
-                    "tracked", totalTracked,
+                    "tracked", ids.size(),
                     "suspicious", suspiciousItems));
         });
     }
@@ -170,23 +181,17 @@ public final class DupeCommand implements CommandExecutor, TabCompleter {
             return;
         }
 
-        CompletableFuture.supplyAsync(() -> {
-            Long itemId = ItemIdentifier.getItemId(item);
-            if (itemId == null) {
-                itemId = itemRegistry.registerItem(item, "TEST_SCAN", player.getName());
-            }
-
-            List<ItemRegistry.TrackedItem> duplicates = itemRegistry.findDuplicates(itemId);
-            return new Object[]{itemId, duplicates};
-        }).thenAccept(result -> {
-            long itemId = (long) ((Object[]) result)[0];
-            @SuppressWarnings("unchecked")
-            List<ItemRegistry.TrackedItem> duplicates = (List<ItemRegistry.TrackedItem>) ((Object[]) result)[1];
+        ItemSnapshot snapshot = ItemSnapshot.capture(item);
+        CompletableFuture<Long> testedId = snapshot.itemId() != null ? CompletableFuture.completedFuture(snapshot.itemId()) :
+                itemRegistry.registerItemsAsync(List.of(item), "TEST_SCAN", player.getName()).thenApply(ids -> ids[0]);
+        testedId.thenApplyAsync(itemId -> new TestResult(itemId, itemRegistry.findDuplicates(itemId),
+                ItemIdentifier.createFingerprint(snapshot).toHex().substring(0, 16))).thenAccept(result -> {
+            long itemId = result.itemId();
+            List<ItemRegistry.TrackedItem> duplicates = result.duplicates();
 
             sender.sendMessage(configManager.getMessage("test-results"));
             sender.sendMessage(configManager.getMessage("test-item-id", "id", itemId));
-            sender.sendMessage(configManager.getMessage("test-fingerprint",
-                    "fingerprint", ItemIdentifier.createFingerprint(item).substring(0, 16)));
+            sender.sendMessage(configManager.getMessage("test-fingerprint", "fingerprint", result.fingerprint()));
 
             if (duplicates.isEmpty()) {
                 sender.sendMessage(configManager.getMessage("test-no-duplicates"));
@@ -194,7 +199,7 @@ public final class DupeCommand implements CommandExecutor, TabCompleter {
                 sender.sendMessage(configManager.getMessage("test-duplicates-found", "count", duplicates.size()));
                 duplicates.stream().limit(3).forEach(dupe ->
                         sender.sendMessage(configManager.getMessage("test-duplicate-entry",
-                                "id", dupe.id(), "creator", dupe.creator())));
+                                "id", dupe.id(), "creator", itemRegistry.getCreator(dupe))));
 
                 debugManager.broadcastDupeAlert(player.getName(), itemId, duplicates.size());
             }
@@ -220,35 +225,38 @@ public final class DupeCommand implements CommandExecutor, TabCompleter {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            ItemRegistry.TrackedItem original = itemRegistry.getItem(itemId);
-            if (original == null) {
+        CompletableFuture.supplyAsync(() -> itemRegistry.getItem(itemId) == null ? null
+                : itemRegistry.findDuplicates(itemId)).thenAccept(duplicates -> {
+            if (duplicates == null) {
                 sender.sendMessage(configManager.getMessage("item-not-found"));
                 return;
             }
-
-            List<ItemRegistry.TrackedItem> duplicates = itemRegistry.findDuplicates(itemId);
             if (duplicates.isEmpty()) {
                 sender.sendMessage(configManager.getMessage("no-duplicates-to-delete"));
                 return;
             }
 
-            int deletedCount = 0;
-            for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                for (ItemStack item : onlinePlayer.getInventory().getContents()) {
-                    if (item != null && !item.getType().isAir()) {
-                        Long id = ItemIdentifier.getItemId(item);
-                        if (id != null && duplicates.stream().anyMatch(d -> d.id() == id)) {
-                            item.setAmount(0);
-                            deletedCount++;
-                        }
+            Bukkit.getScheduler().runTask(configManager.getPlugin(), () -> deleteHeldDuplicates(sender, itemId, duplicates));
+        });
+    }
+
+    private void deleteHeldDuplicates(CommandSender sender, long itemId, List<ItemRegistry.TrackedItem> duplicates) {
+        List<Long> deleted = new ArrayList<>();
+        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
+            for (ItemStack item : onlinePlayer.getInventory().getContents()) {
+                if (item != null && !item.getType().isAir()) {
+                    Long id = ItemIdentifier.getItemId(item);
+                    if (id != null && duplicates.stream().anyMatch(d -> d.id() == id)) {
+                        item.setAmount(0);
+                        deleted.add(id);
                     }
                 }
             }
+        }
 
-            sender.sendMessage(configManager.getMessage("duplicates-deleted",
-                    "count", deletedCount, "id", itemId));
-        });
+        CompletableFuture.runAsync(() -> deleted.forEach(itemRegistry::removeItem));
+        sender.sendMessage(configManager.getMessage("duplicates-deleted",
+                "count", deleted.size(), "id", itemId));
     }
 
     @Override
@@ -281,35 +289,47 @@ public final class DupeCommand implements CommandExecutor, TabCompleter {
     }
 
     private List<String> getDuplicateIds(String partial) {
-        List<String> duplicateIds = new ArrayList<>();
+        refreshDuplicateIds();
+        return duplicateIds.stream()
+                .filter(id -> id.startsWith(partial))
+                .limit(20)
+                .collect(Collectors.toList());
+    }
 
-        try {
-            CompletableFuture<List<String>> future = CompletableFuture.supplyAsync(() -> {
-                List<String> ids = new ArrayList<>();
-
-                for (Player player : Bukkit.getOnlinePlayers()) {
-                    for (ItemStack item : player.getInventory().getContents()) {
-                        if (item != null && !item.getType().isAir()) {
-                            Long itemId = ItemIdentifier.getItemId(item);
-                            if (itemId != null) {
-                                List<ItemRegistry.TrackedItem> duplicates = itemRegistry.findDuplicates(itemId);
-                                if (!duplicates.isEmpty()) {
-                                    String idStr = String.valueOf(itemId);
-                                    if (idStr.startsWith(partial) && !ids.contains(idStr)) {
-                                        ids.add(idStr);
-                                    }
-                                }
-                            }
-                        }
+    // Tab completion never waits on storage: it offers the ids found by the previous refresh.
+    private void refreshDuplicateIds() {
+        if (!refreshingDuplicateIds.compareAndSet(false, true)) return;
+
+        Set<Long> held = new LinkedHashSet<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            for (ItemStack item : player.getInventory().getContents()) {
+                if (item != null && !item.getType().isAir()) {
+                    Long itemId = ItemIdentifier.getItemId(item);
+                    if (itemId != null) {
+                        held.add(itemId);
                     }
                 }
+            }
+        }
 
-                return ids.stream().limit(20).collect(Collectors.toList());
-            });
+        long[] ids = held.stream().mapToLong(Long::longValue).toArray();
+        CompletableFuture.supplyAsync(() -> {
+            List<List<ItemRegistry.TrackedItem>> duplicates = itemRegistry.findDuplicates(ids);
+            List<String> found = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (!duplicates.get(i).isEmpty()) {
+                    found.add(String.valueOf(ids[i]));
+                }
+            }
+            return found;
+        }).whenComplete((found, throwable) -> {
+            if (found != null) {
+                duplicateIds = found;
+            }
+            refreshingDuplicateIds.set(false);
+        });
+    }
 
-            return future.get(100, TimeUnit.MILLISECONDS);
-        } catch (Exception e) {
-            return List.of("12345", "67890", "11111");
-        }
+    private record TestResult(long itemId, List<ItemRegistry.TrackedItem> duplicates, String fingerprint) {
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package dev.aari.antidupe.commands;
 
 import dev.aari.antidupe.config.ConfigManager;
 import dev.aari.antidupe.data.ItemRegistry;
+import dev.aari.antidupe.redis.RedisManager;
 import dev.aari.antidupe.util.ItemIdentifier;
 import dev.aari.antidupe.util.SoundUtil;
 import org.bukkit.command.Command;
@@ -18,10 +19,12 @@ public final class IdCommand implements CommandExecutor {
 
     private final ItemRegistry itemRegistry;
     private final ConfigManager configManager;
+    private final RedisManager redisManager;
 
-    public IdCommand(ItemRegistry itemRegistry, ConfigManager configManager) {
+    public IdCommand(ItemRegistry itemRegistry, ConfigManager configManager, RedisManager redisManager) {
         this.itemRegistry = itemRegistry;
         this.configManager = configManager;
+        this.redisManager = redisManager;
     }
 
     @Override
@@ -68,30 +71,32 @@ public final class IdCommand implements CommandExecutor {
             return true;
         }
 
-        CompletableFuture.supplyAsync(() -> {
-            Long existingId = ItemIdentifier.getItemId(item);
-            return existingId != null ? existingId :
-                    itemRegistry.registerItem(item, "CHECKED", player.getName());
-        }).thenAccept(id -> {
-            if (id == -1L) {
-                SoundUtil.sendActionBar(player, configManager.getMessage("invalid-item"));
-                SoundUtil.playErrorSound(player);
-                return;
-            }
+        Long existingId = ItemIdentifier.getItemId(item);
+        CompletableFuture<Long> checkedId = existingId != null ? CompletableFuture.completedFuture(existingId) :
+                itemRegistry.registerItemsAsync(List.of(item), "CHECKED", player.getName()).thenApply(ids -> ids[0]);
+        checkedId.thenApplyAsync(id -> new Check(id, id == -1L ? List.of() : itemRegistry.findDuplicates(id)))
+                .thenAccept(check -> {
+                    long id = check.id();
+                    if (id == -1L) {
+                        SoundUtil.sendActionBar(player, configManager.getMessage("invalid-item"));
+                        SoundUtil.playErrorSound(player);
+                        return;
+                    }
 
-            player.sendMessage(configManager.getMessage("item-id", "id", id));
-            SoundUtil.playSuccessSound(player);
+                    player.sendMessage(configManager.getMessage("item-id", "id", id));
+                    SoundUtil.playSuccessSound(player);
 
-            List<ItemRegistry.TrackedItem> duplicates = itemRegistry.findDuplicates(id);
-            if (!duplicates.isEmpty()) {
-                player.sendMessage(configManager.getMessage("duplicates-warning", "count", duplicates.size()));
-                SoundUtil.playErrorSound(player); // Alert sound for duplicates
-            }
-        }).exceptionally(throwable -> {
-            SoundUtil.sendActionBar(player, configManager.getMessage("error-checking"));
-            SoundUtil.playErrorSound(player);
-            return null;
-        });
+                    List<ItemRegistry.TrackedItem> duplicates = check.duplicates();
+                    if (!duplicates.isEmpty()) {
+                        player.sendMessage(configManager.getMessage("duplicates-warning", "count", duplicates.size()));
+                        SoundUtil.playErrorSound(player); // Alert sound for duplicates
+                    }
+                })
+                .exceptionally(throwable -> {
+                    SoundUtil.sendActionBar(player, configManager.getMessage("error-checking"));
+                    SoundUtil.playErrorSound(player);
+                    return null;
+                });
 
         return true;
     }
@@ -110,9 +115,10 @@ public final class IdCommand implements CommandExecutor {
             return true;
         }
 
-        CompletableFuture.supplyAsync(() -> itemRegistry.findDuplicates(id))
-                .thenAccept(duplicates -> {
-                    ItemRegistry.TrackedItem original = itemRegistry.getItem(id);
+        CompletableFuture.supplyAsync(() -> new Lookup(itemRegistry.getItem(id), itemRegistry.findDuplicates(id)))
+                .thenAccept(lookup -> {
+                    ItemRegistry.TrackedItem original = lookup.original();
+                    List<ItemRegistry.TrackedItem> duplicates = lookup.duplicates();
                     if (original == null) {
                         if (sender instanceof Player player) {
                             SoundUtil.sendActionBar(player, configManager.getMessage("item-not-found"));
@@ -124,7 +130,7 @@ public final class IdCommand implements CommandExecutor {
                     }
 
                     sender.sendMessage(configManager.getMessage("original-item",
-                            "id", id, "creator", original.creator()));
+                            "id", id, "creator", itemRegistry.getCreator(original)));
 
                     if (duplicates.isEmpty()) {
                         sender.sendMessage(configManager.getMessage("no-duplicates"));
@@ -136,13 +142,18 @@ public final class IdCommand implements CommandExecutor {
 
                         for (ItemRegistry.TrackedItem dupe : duplicates) {
                             sender.sendMessage(configManager.getMessage("duplicate-entry",
-                                    "id", dupe.id(), "creator", dupe.creator()));
+                                    "id", dupe.id(), "creator", itemRegistry.getCreator(dupe)));
                         }
 
                         if (sender instanceof Player player) {
                             SoundUtil.playErrorSound(player); // Alert sound for found duplicates
                         }
                     }
+
+                    if (redisManager.isEnabled()) {
+                        redisManager.getNetworkDuplicates(original.fingerprint())
+                                .thenAccept(network -> reportNetworkDuplicates(sender, id, duplicates, network));
+                    }
                 })
                 .exceptionally(throwable -> {
                     if (sender instanceof Player player) {
@@ -156,4 +167,27 @@ public final class IdCommand implements CommandExecutor {
 
         return true;
     }
-}
\ No newline at end of file
+
+    private void reportNetworkDuplicates(CommandSender sender, long id, List<ItemRegistry.TrackedItem> local,
+                                         RedisManager.NetworkDuplicates network) {
+        int sampledRemote = 0;
+        for (long memberId : network.itemIds()) {
+            if (memberId != id && local.stream().noneMatch(dupe -> dupe.id() == memberId)) {
+                sampledRemote++;
+            }
+        }
+
+        // Only a sample of the ids comes back, so the rest are assumed to be remote unless known here
+        int remote = Math.max(sampledRemote, network.count() - 1 - local.size());
+
+        if (remote > 0) {
+            sender.sendMessage(configManager.getMessage("network-duplicates", "count", remote));
+        }
+    }
+
+    private record Check(long id, List<ItemRegistry.TrackedItem> duplicates) {
+    }
+
+    private record Lookup(ItemRegistry.TrackedItem original, List<ItemRegistry.TrackedItem> duplicates) {
+    }
+}
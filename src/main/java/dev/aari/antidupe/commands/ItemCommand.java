@@ -72,8 +72,9 @@ public final class ItemCommand implements CommandExecutor {
         }
 
         final Long finalItemId = itemId;
-        CompletableFuture.supplyAsync(() -> itemRegistry.getItemHistory(finalItemId))
-                .thenAccept(history -> displayHistory(sender, finalItemId, history))
+        CompletableFuture.supplyAsync(() -> new History(itemRegistry.getItem(finalItemId),
+                        itemRegistry.getItemHistory(finalItemId)))
+                .thenAccept(history -> displayHistory(sender, finalItemId, history.item(), history.actions()))
                 .exceptionally(throwable -> {
                     sender.sendMessage(configManager.getMessage("error-history"));
                     return null;
@@ -82,8 +83,8 @@ public final class ItemCommand implements CommandExecutor {
         return true;
     }
 
-    private void displayHistory(CommandSender sender, long itemId, List<ItemRegistry.ItemAction> history) {
-        ItemRegistry.TrackedItem item = itemRegistry.getItem(itemId);
+    private void displayHistory(CommandSender sender, long itemId, ItemRegistry.TrackedItem item,
+                                List<ItemRegistry.ItemAction> history) {
         if (item == null) {
             sender.sendMessage(configManager.getMessage("item-not-found"));
             return;
@@ -93,7 +94,7 @@ public final class ItemCommand implements CommandExecutor {
 
         String createdTime = TIME_FORMAT.format(Instant.ofEpochMilli(item.timestamp()));
         sender.sendMessage(configManager.getMessage("created-by",
-                "time", createdTime, "creator", item.creator()));
+                "time", createdTime, "creator", itemRegistry.getCreator(item)));
 
         if (history.isEmpty()) {
             sender.sendMessage(configManager.getMessage("no-actions"));
@@ -120,4 +121,7 @@ public final class ItemCommand implements CommandExecutor {
             sender.sendMessage(configManager.getMessage("more-actions", "count", remaining));
         }
     }
-}
\ No newline at end of file
+
+    private record History(ItemRegistry.TrackedItem item, List<ItemRegistry.ItemAction> actions) {
+    }
+}
@@ -0,0 +1,95 @@
+package dev.aari.antidupe.data;
+
+import java.util.Arrays;
+
+final class ClockCache<V> {
+
+    private final ConcurrentLongMap<Entry<V>> entries;
+    private final Entry<V>[] ring;
+    private int hand;
+    private int used;
+
+    @SuppressWarnings("unchecked")
+    ClockCache(int capacity, int concurrency) {
+        this.ring = new Entry[Math.max(1, capacity)];
+        this.entries = new ConcurrentLongMap<>(ring.length, concurrency);
+    }
+
+    V get(long key) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) return null;
+
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    synchronized void put(long key, V value) {
+        final Entry<V> existing = entries.get(key);
+        if (existing != null) {
+            existing.value = value;
+            existing.referenced = true;
+            return;
+        }
+
+        final int slot = used < ring.length ? used++ : evict();
+        final Entry<V> entry = new Entry<>(key, value, slot);
+        ring[slot] = entry;
+        entries.put(key, entry);
+    }
+
+    synchronized void remove(long key) {
+        final Entry<V> entry = entries.remove(key);
+        if (entry != null && ring[entry.slot] == entry) {
+            ring[entry.slot] = null;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        Arrays.fill(ring, null);
+        hand = 0;
+        used = 0;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int capacity() {
+        return ring.length;
+    }
+
+    private int evict() {
+        while (true) {
+            final int slot = hand;
+            hand = (hand + 1) % ring.length;
+
+            final Entry<V> entry = ring[slot];
+            if (entry == null) return slot;
+            if (entry.referenced) {
+                entry.referenced = false;
+                continue;
+            }
+
+            entries.remove(entry.key);
+            ring[slot] = null;
+            return slot;
+        }
+    }
+
+    private static final class Entry<V> {
+
+        final long key;
+        final int slot;
+        volatile V value;
+        volatile boolean referenced;
+
+        Entry(long key, V value, int slot) {
+            this.key = key;
+            this.value = value;
+            this.slot = slot;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package dev.aari.antidupe.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.UnaryOperator;
+
+final class ConcurrentLongMap<V> {
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final long FREE = 0L;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_CAPACITY = 16;
+
+    private final Stripe<V>[] stripes;
+    private final int stripeShift;
+
+    @SuppressWarnings("unchecked")
+    ConcurrentLongMap(int expectedSize, int concurrency) {
+        final int stripeCount = Integer.highestOneBit(Math.max(2, concurrency) * 2 - 1);
+        final int perStripe = tableSize(Math.max(1, expectedSize / stripeCount));
+
+        this.stripes = new Stripe[stripeCount];
+        this.stripeShift = Long.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(perStripe);
+        }
+    }
+
+    V get(long key) {
+        final long hash = mix(key);
+        return stripe(hash).get(key, hash);
+    }
+
+    V put(long key, V value) {
+        final long hash = mix(key);
+        final Stripe<V> stripe = stripe(hash);
+        synchronized (stripe) {
+            return stripe.put(key, hash, value);
+        }
+    }
+
+    V remove(long key) {
+        final long hash = mix(key);
+        final Stripe<V> stripe = stripe(hash);
+        synchronized (stripe) {
+            return stripe.put(key, hash, null);
+        }
+    }
+
+    V update(long key, UnaryOperator<V> function) {
+        final long hash = mix(key);
+        final Stripe<V> stripe = stripe(hash);
+        synchronized (stripe) {
+            final V updated = function.apply(stripe.get(key, hash));
+            stripe.put(key, hash, updated);
+            return updated;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (final Stripe<V> stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    void forEach(Consumer<V> action) {
+        for (final Stripe<V> stripe : stripes) {
+            stripe.forEach(action);
+        }
+    }
+
+    void forEachKey(LongConsumer action) {
+        for (final Stripe<V> stripe : stripes) {
+            stripe.forEachKey(action);
+        }
+    }
+
+    void clear() {
+        for (final Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.reset();
+            }
+        }
+    }
+
+    private Stripe<V> stripe(long hash) {
+        return stripes[(int) (hash >>> stripeShift)];
+    }
+
+    private static long mix(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static int tableSize(int expected) {
+        final int needed = (int) Math.ceil(expected / LOAD_FACTOR);
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, needed - 1) << 1));
+    }
+
+    private static final class Table {
+
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+
+    private static final class Stripe<V> {
+
+        private final int initialCapacity;
+        private volatile Table table;
+        private volatile Object zeroValue;
+        private volatile int size;
+        private int used;
+
+        Stripe(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            this.table = new Table(initialCapacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key, long hash) {
+            if (key == FREE) return (V) zeroValue;
+
+            final Table current = table;
+            int slot = (int) hash & current.mask;
+            long probe;
+            while ((probe = (long) KEYS.getAcquire(current.keys, slot)) != FREE) {
+                if (probe == key) {
+                    return (V) VALUES.getAcquire(current.values, slot);
+                }
+                slot = (slot + 1) & current.mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, long hash, V value) {
+            if (key == FREE) {
+                final V previous = (V) zeroValue;
+                zeroValue = value;
+                adjustSize(previous, value);
+                return previous;
+            }
+
+            Table current = table;
+            int slot = (int) hash & current.mask;
+            long probe;
+            while ((probe = current.keys[slot]) != FREE) {
+                if (probe == key) {
+                    final V previous = (V) current.values[slot];
+                    VALUES.setRelease(current.values, slot, value);
+                    adjustSize(previous, value);
+                    return previous;
+                }
+                slot = (slot + 1) & current.mask;
+            }
+
+            if (value == null) return null;
+
+            if (used + 1 > current.keys.length * LOAD_FACTOR) {
+                current = rehash(current);
+                slot = (int) hash & current.mask;
+                while (current.keys[slot] != FREE) {
+                    slot = (slot + 1) & current.mask;
+                }
+            }
+
+            VALUES.setRelease(current.values, slot, value);
+            KEYS.setRelease(current.keys, slot, key);
+            used++;
+            size++;
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(Consumer<V> action) {
+            final Object zero = zeroValue;
+            if (zero != null) {
+                action.accept((V) zero);
+            }
+
+            final Table current = table;
+            for (int slot = 0; slot < current.keys.length; slot++) {
+                if ((long) KEYS.getAcquire(current.keys, slot) == FREE) continue;
+
+                final Object value = VALUES.getAcquire(current.values, slot);
+                if (value != null) {
+                    action.accept((V) value);
+                }
+            }
+        }
+
+        void forEachKey(LongConsumer action) {
+            if (zeroValue != null) {
+                action.accept(FREE);
+            }
+
+            final Table current = table;
+            for (int slot = 0; slot < current.keys.length; slot++) {
+                final long key = (long) KEYS.getAcquire(current.keys, slot);
+                if (key != FREE && VALUES.getAcquire(current.values, slot) != null) {
+                    action.accept(key);
+                }
+            }
+        }
+
+        void reset() {
+            table = new Table(initialCapacity);
+            zeroValue = null;
+            size = 0;
+            used = 0;
+        }
+
+        private void adjustSize(V previous, V value) {
+            if (previous == null && value != null) {
+                size++;
+            } else if (previous != null && value == null) {
+                size--;
+            }
+        }
+
+        private Table rehash(Table current) {
+            final int live = size - (zeroValue != null ? 1 : 0);
+            final Table rehashed = new Table(Math.max(initialCapacity, tableSize((live + 1) * 2)));
+            for (int slot = 0; slot < current.keys.length; slot++) {
+                final long key = current.keys[slot];
+                final Object value = current.values[slot];
+                if (key == FREE || value == null) continue;
+
+                int target = (int) mix(key) & rehashed.mask;
+                while (rehashed.keys[target] != FREE) {
+                    target = (target + 1) & rehashed.mask;
+                }
+                rehashed.keys[target] = key;
+                rehashed.values[target] = value;
+            }
+
+            used = live;
+            table = rehashed;
+            return rehashed;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package dev.aari.antidupe.data;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongPredicate;
+
+final class EvictionBuckets {
+
+    private final long bucketMillis;
+    private final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+    EvictionBuckets(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+
+    void add(long id, long timestamp) {
+        final long key = timestamp / bucketMillis;
+        while (true) {
+            final Bucket bucket = buckets.computeIfAbsent(key, ignored -> new Bucket());
+            if (bucket.add(id)) return;
+            buckets.remove(key, bucket);
+        }
+    }
+
+    int evict(long cutoff, int budget, LongPredicate evictor) {
+        final long cutoffBucket = cutoff / bucketMillis;
+        int evicted = 0;
+
+        while (budget > 0) {
+            final Map.Entry<Long, Bucket> oldest = buckets.firstEntry();
+            if (oldest == null || oldest.getKey() >= cutoffBucket) break;
+
+            final Bucket bucket = oldest.getValue();
+            final LongArrayList slice = bucket.drain(budget);
+            budget -= slice.size();
+            for (int i = 0; i < slice.size(); i++) {
+                if (evictor.test(slice.getLong(i))) {
+                    evicted++;
+                }
+            }
+
+            if (bucket.closeIfEmpty()) {
+                buckets.remove(oldest.getKey(), bucket);
+            }
+        }
+        return evicted;
+    }
+
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    void clear() {
+        buckets.clear();
+    }
+
+    private static final class Bucket {
+
+        private final LongArrayList ids = new LongArrayList(16);
+        private boolean closed;
+
+        synchronized boolean add(long id) {
+            if (closed) return false;
+            ids.add(id);
+            return true;
+        }
+
+        synchronized LongArrayList drain(int max) {
+            final int count = Math.min(max, ids.size());
+            final LongArrayList slice = new LongArrayList(count);
+            for (int i = ids.size() - count; i < ids.size(); i++) {
+                slice.add(ids.getLong(i));
+            }
+            ids.size(ids.size() - count);
+            return slice;
+        }
+
+        synchronized boolean closeIfEmpty() {
+            closed = ids.isEmpty();
+            return closed;
+        }
+    }
+}
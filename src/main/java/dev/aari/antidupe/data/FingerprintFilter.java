@@ -0,0 +1,109 @@
+package dev.aari.antidupe.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+final class FingerprintFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int HASHES = 4;
+    private static final int COUNTERS_PER_ITEM = 8;
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long SATURATED = COUNTER_MASK;
+
+    private final long[] words;
+    private final long counterMask;
+    private final int capacity;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    FingerprintFilter(int expectedItems) {
+        final long counters = Long.highestOneBit(Math.max(1024L, (long) expectedItems * COUNTERS_PER_ITEM) * 2 - 1);
+        this.words = new long[(int) (counters / COUNTERS_PER_WORD)];
+        this.counterMask = counters - 1;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE, counters / COUNTERS_PER_ITEM);
+    }
+
+    void add(long high, long low) {
+        for (int i = 0; i < HASHES; i++) {
+            adjust(position(high, low, i), 1);
+        }
+        items.increment();
+    }
+
+    void remove(long high, long low) {
+        for (int i = 0; i < HASHES; i++) {
+            adjust(position(high, low, i), -1);
+        }
+        items.decrement();
+    }
+
+    boolean mightHaveDuplicate(long high, long low) {
+        checks.increment();
+        for (int i = 0; i < HASHES; i++) {
+            if (counter(position(high, low, i)) < 2) {
+                negatives.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long items() {
+        return items.sum();
+    }
+
+    // Checked items are already in the filter, so each of their counters holds at least 1 and reaches the
+    // threshold of 2 only when another item also lands on it: P(counter >= 2 | own increment) under Poisson
+    // occupancy with the other items' k * (n - 1) increments spread over the counters.
+    ItemRegistry.FilterStats stats() {
+        final long live = Math.max(0L, items.sum());
+        final double others = HASHES * (double) Math.max(0L, live - 1) / (counterMask + 1);
+        final double shared = 1.0 - Math.exp(-others);
+        return new ItemRegistry.FilterStats(live, capacity, Math.pow(shared, HASHES),
+                checks.sum(), negatives.sum(), falsePositives.sum(), (long) words.length * Long.BYTES);
+    }
+
+    private long position(long high, long low, int i) {
+        long hash = high + i * (low | 1L);
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash & counterMask;
+    }
+
+    private int counter(long position) {
+        final long word = (long) WORDS.getOpaque(words, (int) (position / COUNTERS_PER_WORD));
+        return (int) ((word >>> shift(position)) & COUNTER_MASK);
+    }
+
+    private void adjust(long position, int delta) {
+        final int index = (int) (position / COUNTERS_PER_WORD);
+        final int shift = shift(position);
+        while (true) {
+            final long word = (long) WORDS.getVolatile(words, index);
+            final long value = (word >>> shift) & COUNTER_MASK;
+            if (value == SATURATED || value == 0L && delta < 0) return;
+
+            final long updated = word + ((long) delta << shift);
+            if (WORDS.compareAndSet(words, index, word, updated)) return;
+        }
+    }
+
+    private static int shift(long position) {
+        return (int) (position % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+}
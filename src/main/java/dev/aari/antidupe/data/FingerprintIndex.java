@@ -0,0 +1,206 @@
+package dev.aari.antidupe.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+final class FingerprintIndex {
+
+    private static final long[] NONE = new long[0];
+    private static final int SMALL_IDS = 8; // larger id groups are promoted to an IdSet
+
+    private final ConcurrentLongMap<Object> entries;
+
+    FingerprintIndex(int expectedSize, int concurrency) {
+        this.entries = new ConcurrentLongMap<>(expectedSize, concurrency);
+    }
+
+    void add(long key, long id) {
+        entries.update(key, value -> {
+            if (value == null) return new long[] {id};
+            if (value instanceof IdSet set) {
+                set.add(id);
+                return set;
+            }
+
+            final long[] ids = (long[]) value;
+            for (final long existing : ids) {
+                if (existing == id) return ids;
+            }
+            if (ids.length == SMALL_IDS) {
+                final IdSet set = new IdSet(ids);
+                set.add(id);
+                return set;
+            }
+
+            final long[] grown = Arrays.copyOf(ids, ids.length + 1);
+            grown[ids.length] = id;
+            return grown;
+        });
+    }
+
+    void remove(long key, long id) {
+        entries.update(key, value -> {
+            if (value == null) return null;
+            if (value instanceof IdSet set) {
+                set.remove(id);
+                return set.size() == 0 ? null : set;
+            }
+
+            final long[] ids = (long[]) value;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != id) continue;
+                if (ids.length == 1) return null;
+
+                final long[] shrunk = new long[ids.length - 1];
+                System.arraycopy(ids, 0, shrunk, 0, i);
+                System.arraycopy(ids, i + 1, shrunk, i, ids.length - i - 1);
+                return shrunk;
+            }
+            return ids;
+        });
+    }
+
+    long[] get(long key) {
+        final Object value = entries.get(key);
+        if (value == null) return NONE;
+        return value instanceof IdSet set ? set.snapshot() : (long[]) value;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    // Open-addressing id set mutated in place under the owning stripe's lock. Readers scan the
+    // published table with acquire loads, so they never lock and never see a half-built table.
+    private static final class IdSet {
+
+        private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+        private static final long FREE = 0L;
+        private static final long REMOVED = Long.MIN_VALUE;
+
+        private volatile long[] slots;
+        private volatile boolean hasZero;
+        private int size;
+        private int used;
+
+        IdSet(long[] ids) {
+            this.slots = new long[tableSize(ids.length * 2)];
+            for (final long id : ids) {
+                add(id);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(long id) {
+            if (id == FREE) {
+                if (!hasZero) {
+                    hasZero = true;
+                    size++;
+                }
+                return;
+            }
+
+            long[] table = slots;
+            int slot = slot(id, table);
+            int reusable = -1;
+            long probe;
+            while ((probe = table[slot]) != FREE) {
+                if (probe == id) return;
+                if (probe == REMOVED && reusable < 0) {
+                    reusable = slot;
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+
+            if (reusable >= 0) {
+                SLOTS.setRelease(table, reusable, id);
+                size++;
+                return;
+            }
+            if (used + 1 > table.length * 3 / 4) {
+                table = rehash(tableSize((size + 1) * 2));
+                slot = slot(id, table);
+                while (table[slot] != FREE) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+            }
+            SLOTS.setRelease(table, slot, id);
+            used++;
+            size++;
+        }
+
+        void remove(long id) {
+            if (id == FREE) {
+                if (hasZero) {
+                    hasZero = false;
+                    size--;
+                }
+                return;
+            }
+
+            final long[] table = slots;
+            int slot = slot(id, table);
+            long probe;
+            while ((probe = table[slot]) != FREE) {
+                if (probe == id) {
+                    SLOTS.setRelease(table, slot, REMOVED);
+                    size--;
+                    if (table.length > 16 && size < table.length / 8) {
+                        rehash(tableSize(size * 2)); // shrink after a hot fingerprint drains
+                    }
+                    return;
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+        }
+
+        long[] snapshot() {
+            final long[] table = slots;
+            final boolean zero = hasZero;
+            long[] ids = new long[Math.min(table.length, size + 16) + (zero ? 1 : 0)];
+            int count = 0;
+            if (zero) {
+                ids[count++] = FREE;
+            }
+            for (int slot = 0; slot < table.length; slot++) {
+                final long id = (long) SLOTS.getAcquire(table, slot);
+                if (id == FREE || id == REMOVED) continue;
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[count++] = id;
+            }
+            return count == ids.length ? ids : Arrays.copyOf(ids, count);
+        }
+
+        private long[] rehash(int capacity) {
+            final long[] current = slots;
+            final long[] rehashed = new long[capacity];
+            for (final long id : current) {
+                if (id == FREE || id == REMOVED) continue;
+
+                int slot = slot(id, rehashed);
+                while (rehashed[slot] != FREE) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                rehashed[slot] = id;
+            }
+            used = size - (hasZero ? 1 : 0);
+            slots = rehashed;
+            return rehashed;
+        }
+
+        private static int slot(long id, long[] table) {
+            final long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & (table.length - 1);
+        }
+
+        private static int tableSize(int expected) {
+            return Math.max(16, Integer.highestOneBit(Math.max(1, expected - 1) << 1));
+        }
+    }
+}
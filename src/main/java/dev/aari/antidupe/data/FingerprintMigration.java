@@ -0,0 +1,98 @@
+package dev.aari.antidupe.data;
+
+import dev.aari.antidupe.util.FingerprintAlgorithm;
+import dev.aari.antidupe.util.ItemIdentifier;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+final class FingerprintMigration {
+
+    private static final Object STALE = Boolean.TRUE;
+
+    private final Path path;
+    private final FingerprintAlgorithm algorithm;
+    private final ConcurrentLongMap<Object> stale;
+    private int savedCount = -1;
+
+    FingerprintMigration(Path path, FingerprintAlgorithm algorithm, int concurrency) {
+        this.path = path;
+        this.algorithm = algorithm;
+        this.stale = new ConcurrentLongMap<>(64, concurrency);
+    }
+
+    int open(ItemStore store) throws IOException {
+        if (!Files.exists(path)) {
+            markAll(store); // written before fingerprints were versioned, so none can be reproduced
+            save();
+            return stale.size();
+        }
+
+        final FingerprintAlgorithm stored;
+        final int storedFormat;
+        final LongArrayList ids = new LongArrayList();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            stored = FingerprintAlgorithm.fromId(input.readInt());
+            storedFormat = input.readInt();
+            final int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                ids.add(input.readLong());
+            }
+        }
+
+        if (stored != algorithm || storedFormat != ItemIdentifier.FINGERPRINT_FORMAT) {
+            markAll(store);
+            save();
+        } else {
+            for (int i = 0; i < ids.size(); i++) {
+                final long id = ids.getLong(i);
+                if (store.get(id) != null) {
+                    stale.put(id, STALE);
+                }
+            }
+        }
+        return stale.size();
+    }
+
+    boolean take(long id) {
+        return stale.remove(id) != null;
+    }
+
+    int pending() {
+        return stale.size();
+    }
+
+    void saveIfChanged() throws IOException {
+        if (stale.size() != savedCount) {
+            save();
+        }
+    }
+
+    private void save() throws IOException {
+        final LongArrayList ids = new LongArrayList(stale.size());
+        stale.forEachKey(ids::add);
+
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            output.writeInt(algorithm.id());
+            output.writeInt(ItemIdentifier.FINGERPRINT_FORMAT);
+            output.writeInt(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                output.writeLong(ids.getLong(i));
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedCount = ids.size();
+    }
+
+    private void markAll(ItemStore store) {
+        store.forEach(item -> stale.put(item.id(), STALE));
+    }
+}
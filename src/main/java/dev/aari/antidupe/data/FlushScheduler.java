@@ -0,0 +1,80 @@
+package dev.aari.antidupe.data;
+
+import dev.aari.antidupe.AntiDupe;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+final class FlushScheduler {
+
+    private final AntiDupe plugin;
+    private final Runnable flushAction;
+    private final long maxIntervalMillis;
+    private final long batchSize;
+    private final AtomicLong mutationSequence = new AtomicLong();
+    private final AtomicLong oldestPendingAt = new AtomicLong();
+    private volatile long flushedSequence;
+    private volatile long flushCount;
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+    private BukkitTask task;
+
+    FlushScheduler(AntiDupe plugin, Runnable flushAction, long maxIntervalMillis, int batchSize) {
+        this.plugin = plugin;
+        this.flushAction = flushAction;
+        this.maxIntervalMillis = Math.max(50L, maxIntervalMillis);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    void start() {
+        this.task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::tick, 1L, 1L);
+    }
+
+    void markDirty(int mutations) {
+        oldestPendingAt.compareAndSet(0L, System.currentTimeMillis());
+        mutationSequence.addAndGet(mutations);
+    }
+
+    void flushNow() {
+        synchronized (this) {
+            final long target = mutationSequence.get();
+            final long pendingSince = oldestPendingAt.getAndSet(0L);
+            if (target == flushedSequence) return;
+
+            flushAction.run();
+
+            flushedSequence = target;
+            flushCount++;
+            if (pendingSince != 0L) {
+                lastLagMillis = System.currentTimeMillis() - pendingSince;
+                maxLagMillis = Math.max(maxLagMillis, lastLagMillis);
+            }
+        }
+    }
+
+    void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        flushNow();
+    }
+
+    ItemRegistry.FlushStats stats() {
+        final long pendingSince = oldestPendingAt.get();
+        final long currentLag = pendingSince == 0L ? 0L : System.currentTimeMillis() - pendingSince;
+        return new ItemRegistry.FlushStats(mutationSequence.get() - flushedSequence, flushCount,
+                currentLag, lastLagMillis, maxLagMillis);
+    }
+
+    private void tick() {
+        final long pending = mutationSequence.get() - flushedSequence;
+        if (pending == 0L) return;
+
+        final long pendingSince = oldestPendingAt.get();
+        if (pending < batchSize && pendingSince != 0L
+                && System.currentTimeMillis() - pendingSince < maxIntervalMillis) return;
+
+        flushNow();
+    }
+}
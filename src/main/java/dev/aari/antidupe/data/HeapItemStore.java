@@ -0,0 +1,54 @@
+package dev.aari.antidupe.data;
+
+import java.util.function.Consumer;
+
+final class HeapItemStore implements ItemStore {
+
+    private final ConcurrentLongMap<ItemRegistry.TrackedItem> items;
+
+    HeapItemStore(int initialCapacity, int concurrency) {
+        this.items = new ConcurrentLongMap<>(initialCapacity, concurrency);
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem get(long id) {
+        return items.get(id);
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem put(ItemRegistry.TrackedItem item) {
+        return items.put(item.id(), item);
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem remove(long id) {
+        return items.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public void forEach(Consumer<ItemRegistry.TrackedItem> action) {
+        items.forEach(action);
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
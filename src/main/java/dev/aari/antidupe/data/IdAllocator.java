@@ -0,0 +1,114 @@
+package dev.aari.antidupe.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class IdAllocator {
+
+    static final int MAX_NODE = (1 << 10) - 1;
+
+    private static final long EPOCH = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long TIME_MASK = (1L << 40) - 1;
+    private static final long MARKER = 1L << 62; // above every legacy millis << 20 id
+    private static final long RESERVE_MILLIS = 60_000L;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_BYTES = Integer.BYTES * 2 + Long.BYTES;
+
+    private final Path path;
+    private final AtomicLong last = new AtomicLong();
+    private volatile int node = -1;
+    private volatile long reservedUntil;
+    private boolean loaded;
+    private int storedNode = -1;
+    private long storedReservation;
+
+    IdAllocator(Path path) {
+        this.path = path;
+    }
+
+    int savedNode() throws IOException {
+        load();
+        return storedNode;
+    }
+
+    long open(int requestedNode) throws IOException {
+        load();
+        this.node = requestedNode >= 0 ? requestedNode
+                : storedNode >= 0 ? storedNode : ThreadLocalRandom.current().nextInt(MAX_NODE + 1);
+
+        final long now = clock();
+        last.set(Math.max(now, storedReservation) << SEQUENCE_BITS);
+        save();
+        return Math.max(0L, storedReservation - RESERVE_MILLIS - now);
+    }
+
+    long next() {
+        while (true) {
+            final long previous = last.get();
+            final long now = clock();
+            final long next = now > previous >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : previous + 1;
+            if (last.compareAndSet(previous, next)) {
+                return MARKER
+                        | ((next >>> SEQUENCE_BITS) & TIME_MASK) << (NODE_BITS + SEQUENCE_BITS)
+                        | (long) node << SEQUENCE_BITS
+                        | next & SEQUENCE_MASK;
+            }
+        }
+    }
+
+    int node() {
+        return node;
+    }
+
+    synchronized void saveIfAdvanced() throws IOException {
+        if ((last.get() >>> SEQUENCE_BITS) + RESERVE_MILLIS / 2 >= reservedUntil) {
+            save();
+        }
+    }
+
+    private void load() throws IOException {
+        if (loaded || !Files.exists(path)) return;
+
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < FILE_BYTES || buffer.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unrecognised id allocator state in " + path);
+        }
+        storedNode = buffer.getInt();
+        storedReservation = buffer.getLong();
+        loaded = true;
+    }
+
+    private synchronized void save() throws IOException {
+        final long reservation = Math.max(clock(), last.get() >>> SEQUENCE_BITS) + RESERVE_MILLIS;
+        final ByteBuffer buffer = ByteBuffer.allocate(FILE_BYTES)
+                .putInt(FORMAT_VERSION)
+                .putInt(node)
+                .putLong(reservation)
+                .flip();
+
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        reservedUntil = reservation;
+    }
+
+    private static long clock() {
+        return System.currentTimeMillis() - EPOCH;
+    }
+}
@@ -0,0 +1,29 @@
+package dev.aari.antidupe.data;
+
+public enum ItemActionType {
+    TRACKED,
+    MINED,
+    CRAFTED,
+    SMELTED,
+    LOGIN_SCAN,
+    DEBUG_SCAN,
+    TEST_SCAN,
+    CHECKED,
+    MOVED,
+    PICKED_UP,
+    DROPPED,
+    UNKNOWN;
+
+    private static final ItemActionType[] VALUES = values();
+
+    public static ItemActionType fromName(String name) {
+        for (final ItemActionType type : VALUES) {
+            if (type.name().equals(name)) return type;
+        }
+        return UNKNOWN;
+    }
+
+    public static ItemActionType fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : UNKNOWN;
+    }
+}
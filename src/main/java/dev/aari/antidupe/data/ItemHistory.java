@@ -0,0 +1,172 @@
+package dev.aari.antidupe.data;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+final class ItemHistory {
+
+    private static final int FORMAT_MAGIC = 0x41444831; // "ADH1"
+    private static final int HEADER = 0;
+    private static final int MAX_PLAYER_ID = (1 << 24) - 1;
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator.comparingLong(Entry::timestamp).reversed();
+
+    private final Path file;
+    private final int capacity;
+    private final ConcurrentLongMap<long[]> rings;
+    private long loadedEpoch = -1L;
+    private long loadedOffset;
+
+    ItemHistory(Path file, int capacity, int expectedItems, int concurrency) {
+        this.file = file;
+        this.capacity = Math.max(1, capacity);
+        this.rings = new ConcurrentLongMap<>(expectedItems, concurrency);
+    }
+
+    void record(long id, long timestamp, ItemActionType action, int playerId) {
+        final long seconds = timestamp / 1000L;
+        rings.update(id, ring -> append(ring, seconds, action, playerId));
+    }
+
+    List<Entry> latest(long id, int limit) {
+        final long[] ring = rings.get(id);
+        if (ring == null) return List.of();
+
+        final long base = ring[HEADER] >>> 32;
+        final int total = (int) ring[HEADER];
+        final int slots = ring.length - 1;
+        final int count = Math.min(Math.min(total, slots), limit);
+
+        final List<Entry> entries = new ArrayList<>(count);
+        for (int i = total - 1; i >= total - count; i--) {
+            final long entry = ring[1 + i % slots];
+            entries.add(new Entry(
+                    ((base + (int) entry) * 1000L),
+                    ItemActionType.fromOrdinal((int) (entry >>> 56)),
+                    (int) ((entry >>> 32) & MAX_PLAYER_ID)));
+        }
+        entries.sort(NEWEST_FIRST); // remote and catch-up actions arrive out of time order
+        return entries;
+    }
+
+    int total(long id) {
+        final long[] ring = rings.get(id);
+        return ring == null ? 0 : (int) ring[HEADER];
+    }
+
+    void remove(long id) {
+        rings.remove(id);
+    }
+
+    void load() throws IOException {
+        if (!Files.exists(file)) return;
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (input.readInt() != FORMAT_MAGIC) {
+                throw new IOException("Unrecognised history file " + file);
+            }
+            loadedEpoch = input.readLong();
+            loadedOffset = input.readLong();
+
+            final int items = input.readInt();
+            for (int i = 0; i < items; i++) {
+                final long id = input.readLong();
+                final long[] stored = new long[input.readUnsignedShort() + 1];
+                for (int slot = 0; slot < stored.length; slot++) {
+                    stored[slot] = input.readLong();
+                }
+                rings.put(id, resize(stored));
+            }
+        }
+    }
+
+    long coveredOffset(long journalEpoch) {
+        return journalEpoch == loadedEpoch ? loadedOffset : 0L;
+    }
+
+    Snapshot capture(long journalEpoch, long journalOffset) {
+        final LongArrayList ids = new LongArrayList(rings.size());
+        final List<long[]> captured = new ArrayList<>(rings.size());
+        rings.forEachKey(id -> {
+            final long[] ring = rings.get(id);
+            if (ring != null) {
+                ids.add(id);
+                captured.add(ring);
+            }
+        });
+        return new Snapshot(ids, captured, journalEpoch, journalOffset);
+    }
+
+    void save(Snapshot snapshot) throws IOException {
+        final LongArrayList ids = snapshot.ids();
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            output.writeInt(FORMAT_MAGIC);
+            output.writeLong(snapshot.journalEpoch());
+            output.writeLong(snapshot.journalOffset());
+            output.writeInt(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                final long[] ring = snapshot.rings().get(i);
+                output.writeLong(ids.getLong(i));
+                output.writeShort(ring.length - 1);
+                for (final long value : ring) {
+                    output.writeLong(value);
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long[] append(long[] ring, long seconds, ItemActionType action, int playerId) {
+        if (ring == null) {
+            ring = new long[] {seconds << 32, 0L};
+        }
+
+        final long base = ring[HEADER] >>> 32;
+        final int total = (int) ring[HEADER];
+        final int slots = ring.length - 1;
+
+        final long[] next;
+        if (total == slots && slots < capacity) {
+            next = new long[Math.min(capacity, slots * 2) + 1];
+            System.arraycopy(ring, 1, next, 1, slots);
+        } else {
+            next = ring.clone();
+        }
+
+        // Signed, so actions older than the first recorded one keep their own time
+        final long delta = Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, seconds - base));
+        next[1 + total % (next.length - 1)] = ((long) action.ordinal() << 56)
+                | ((long) Math.min(playerId, MAX_PLAYER_ID) << 32)
+                | (delta & 0xFFFFFFFFL);
+        next[HEADER] = (base << 32) | ((total + 1) & 0xFFFFFFFFL);
+        return next;
+    }
+
+    private long[] resize(long[] stored) {
+        final int slots = stored.length - 1;
+        if (slots <= capacity) return stored;
+
+        final int total = (int) stored[HEADER];
+        final long[] resized = new long[capacity + 1];
+        resized[HEADER] = stored[HEADER];
+        for (int i = Math.max(0, total - capacity); i < total; i++) {
+            resized[1 + i % capacity] = stored[1 + i % slots];
+        }
+        return resized;
+    }
+
+    record Entry(long timestamp, ItemActionType action, int playerId) {}
+
+    record Snapshot(LongArrayList ids, List<long[]> rings, long journalEpoch, long journalOffset) {}
+}
@@ -1,278 +1,945 @@
 package dev.aari.antidupe.data;
 
 import dev.aari.antidupe.AntiDupe;
+import dev.aari.antidupe.redis.RedisManager;
+import dev.aari.antidupe.util.Fingerprint;
+import dev.aari.antidupe.util.FingerprintAlgorithm;
 import dev.aari.antidupe.util.ItemIdentifier;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import dev.aari.antidupe.util.ItemSnapshot;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.AsynchronousFileChannel;
-import java.nio.channels.CompletionHandler;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
 
 public final class ItemRegistry {
 
-    private static final AtomicLong ID_GENERATOR = new AtomicLong(System.currentTimeMillis() << 20);
     private static final int INITIAL_CAPACITY = 8192;
-    private static final float LOAD_FACTOR = 0.75f;
+    private static final int CONCURRENCY = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+    private static final int LOAD_CHUNK_BYTES = 4 << 20;
+    private static final int MAX_TRACKED_TYPES = 4096;
+    private static final long EVICTION_BUCKET_MILLIS = 3_600_000L; // 1 hour
+    private static final int PARALLEL_BATCH = 16;
 
     private final AntiDupe plugin;
     private final Path dataFile;
-    private final Long2ObjectOpenHashMap<TrackedItem> itemDatabase;
-    private final Object2LongOpenHashMap<String> itemTypeCount;
-    private volatile AsynchronousFileChannel fileChannel;
-    private volatile boolean initialized = false;
+    private final RegistryJournal journal;
+    private final ItemHistory history;
+    private final int historyLimit;
+    private final ReadWriteLock historyLock = new ReentrantReadWriteLock();
+    private final Object persistLock = new Object();
+    private final long journalCompactBytes;
+    private final boolean fsync;
+    private final SnapshotCodec snapshotCodec;
+    private final FlushScheduler flushScheduler;
+    private final ItemStore store;
+    private final NameDictionary creators;
+    private final NameDictionary itemTypes;
+    private final FingerprintMigration migration;
+    private final IdAllocator idAllocator;
+    private final RegistrationPipeline pipeline;
+    private final FingerprintIndex fingerprintIndex;
+    private final EvictionBuckets evictionBuckets;
+    private final AtomicLongArray typeCounts;
+    private final long retentionMillis;
+    private final int retentionMinItems;
+    private final int evictionSlice;
+    private volatile LoadState loadState = LoadState.PENDING;
+    private volatile SnapshotLoader loader;
+    private volatile FingerprintFilter fingerprintFilter;
+    private volatile FingerprintFilter pendingFilter;
 
     public ItemRegistry(AntiDupe plugin) {
         this.plugin = plugin;
         this.dataFile = plugin.getDataFolder().toPath().resolve("items.dat");
-        this.itemDatabase = new Long2ObjectOpenHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR);
-        this.itemTypeCount = new Object2LongOpenHashMap<>(256);
-        this.itemTypeCount.defaultReturnValue(0L);
+        final FingerprintAlgorithm algorithm = FingerprintAlgorithm.fromConfig(
+                plugin.getConfigManager().getString("settings.fingerprint-algorithm", "murmur3"));
+        ItemIdentifier.setAlgorithm(algorithm);
+        this.migration = new FingerprintMigration(plugin.getDataFolder().toPath().resolve("fingerprints.meta"),
+                algorithm, CONCURRENCY);
+        this.idAllocator = new IdAllocator(plugin.getDataFolder().toPath().resolve("ids.dat"));
+        this.creators = new NameDictionary(plugin.getDataFolder().toPath().resolve("creators.dat"));
+        this.itemTypes = new NameDictionary(plugin.getDataFolder().toPath().resolve("types.dat"));
+        this.store = createStore(plugin.getConfigManager().getString("storage.engine", "heap"));
+        this.journal = new RegistryJournal(plugin.getDataFolder().toPath().resolve("items.log"));
+        this.historyLimit = plugin.getConfigManager().getInt("storage.history.max-actions", 16);
+        this.history = new ItemHistory(plugin.getDataFolder().toPath().resolve("history.dat"),
+                historyLimit, INITIAL_CAPACITY, CONCURRENCY);
+        this.journalCompactBytes = plugin.getConfigManager().getLong("storage.journal-compact-mb", 16L) << 20;
+        this.fsync = plugin.getConfigManager().getBoolean("storage.flush.fsync", false);
+        this.snapshotCodec = SnapshotCodec.fromConfig(
+                plugin.getConfigManager().getString("storage.snapshot-compression", "deflate"));
+        this.flushScheduler = new FlushScheduler(plugin, this::persistToDisk,
+                plugin.getConfigManager().getLong("storage.flush.max-interval-ms", 5000L),
+                plugin.getConfigManager().getInt("storage.flush.batch-size", 512));
+        this.pipeline = new RegistrationPipeline(plugin, this,
+                plugin.getConfigManager().getInt("storage.pipeline.queue-size", 8192));
+        this.fingerprintIndex = new FingerprintIndex(INITIAL_CAPACITY, CONCURRENCY);
+        this.evictionBuckets = new EvictionBuckets(EVICTION_BUCKET_MILLIS);
+        this.typeCounts = new AtomicLongArray(MAX_TRACKED_TYPES);
+        this.retentionMillis = plugin.getConfigManager().getLong("storage.retention.days", 7L) * 86_400_000L;
+        this.retentionMinItems = plugin.getConfigManager().getInt("storage.retention.min-items", 50_000);
+        this.evictionSlice = plugin.getConfigManager().getInt("storage.retention.slice-size", 2000);
 
         startMaintenanceTask();
     }
 
     public void initialize() {
+        this.loadState = LoadState.LOADING;
         try {
             Files.createDirectories(dataFile.getParent());
-            this.fileChannel = AsynchronousFileChannel.open(dataFile,
-                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            final long clockLag = idAllocator.open(nodeId(idAllocator.savedNode()));
+            if (clockLag > 0L) {
+                plugin.getSLF4JLogger().warn("System clock is {}ms behind the last issued item id; new ids continue from there",
+                        clockLag);
+            }
+            creators.open();
+            itemTypes.open();
+            store.open();
+            journal.open();
+            if (store.isDurable()) {
+                this.fingerprintFilter = new FingerprintFilter(Math.max(INITIAL_CAPACITY, store.size() * 2));
+                rebuildIndexes();
+            } else {
+                loadSnapshot();
+                rebuildFilter();
+            }
+            if (!store.storesHistory()) {
+                history.load();
+            }
+            replayJournal();
 
-            if (Files.exists(dataFile) && Files.size(dataFile) > 0) {
-                loadFromDiskAsync();
+            final int stale = migration.open(store);
+            if (stale > 0) {
+                plugin.getSLF4JLogger().info("{} tracked items will be re-fingerprinted with {} as they are seen",
+                        stale, ItemIdentifier.getAlgorithm());
             }
 
-            this.initialized = true;
+            flushScheduler.start();
+            pipeline.start();
+            this.loadState = LoadState.READY;
         } catch (IOException e) {
+            this.loadState = LoadState.FAILED;
             throw new RuntimeException("Failed to initialize ItemRegistry", e);
         }
     }
 
-    public long registerItem(ItemStack item, String action, String player) {
-        if (!initialized || item == null || item.getType().isAir()) return -1L;
+    public LoadState getLoadState() {
+        return loadState;
+    }
+
+    public double getLoadProgress() {
+        if (loadState == LoadState.READY) return 1.0;
+
+        final SnapshotLoader current = loader;
+        return current == null ? 0.0 : current.progress();
+    }
 
-        final PersistentDataContainer pdc = item.getItemMeta().getPersistentDataContainer();
-        final Long existingId = pdc.get(ItemIdentifier.ITEM_ID_KEY, PersistentDataType.LONG);
+    public boolean submit(ItemStack item, String action, String player) {
+        return submit(item, ItemSnapshot.capture(item), action, player);
+    }
 
-        if (existingId != null) {
-            checkForDuplicatesAsync(existingId, player, action);
-            return existingId;
+    public boolean submit(ItemStack item, ItemSnapshot snapshot, String action, String player) {
+        if (loadState != LoadState.READY || snapshot == null) return false;
+        return pipeline.submit(item, snapshot, action, player);
+    }
+
+    // Snapshots are taken on the calling thread, registration runs off it and ids are stamped
+    // back onto the items on the main thread before the future completes.
+    public CompletableFuture<long[]> registerItemsAsync(List<ItemStack> items, String action, String player) {
+        final List<RegistrationPipeline.Registration> registrations = registrations(items, action, player);
+        final CompletableFuture<long[]> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> apply(registrations, fingerprint(registrations)))
+                .whenComplete((ids, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                        return;
+                    }
+                    markItems(registrations, ids);
+                    result.complete(ids);
+                }));
+        return result;
+    }
+
+    private static List<RegistrationPipeline.Registration> registrations(List<ItemStack> items, String action,
+                                                                         String player) {
+        final List<RegistrationPipeline.Registration> registrations = new ArrayList<>(items.size());
+        for (final ItemStack item : items) {
+            registrations.add(new RegistrationPipeline.Registration(item, ItemSnapshot.capture(item), action, player));
+        }
+        return registrations;
+    }
+
+    private static void markItems(List<RegistrationPipeline.Registration> registrations, long[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            final RegistrationPipeline.Registration registration = registrations.get(i);
+            if (ids[i] >= 0L && registration.snapshot().itemId() == null
+                    && ItemIdentifier.getItemId(registration.item()) == null) {
+                ItemIdentifier.markItem(registration.item(), ids[i]);
+            }
+        }
+    }
+
+    Fingerprint[] fingerprint(List<RegistrationPipeline.Registration> registrations) {
+        final Fingerprint[] fingerprints = new Fingerprint[registrations.size()];
+        final IntStream indexes = IntStream.range(0, registrations.size());
+        (registrations.size() >= PARALLEL_BATCH ? indexes.parallel() : indexes).forEach(i -> {
+            final ItemSnapshot snapshot = registrations.get(i).snapshot();
+            if (snapshot == null) return;
+
+            final Long existingId = snapshot.itemId();
+            if (existingId == null || migration.take(existingId)) {
+                fingerprints[i] = ItemIdentifier.createFingerprint(snapshot);
+            }
+        });
+        return fingerprints;
+    }
+
+    long[] apply(List<RegistrationPipeline.Registration> registrations, Fingerprint[] fingerprints) {
+        final long[] ids = new long[registrations.size()];
+        Arrays.fill(ids, -1L);
+        if (loadState != LoadState.READY || registrations.isEmpty()) return ids;
+
+        final long now = System.currentTimeMillis();
+        final int[] playerIds = new int[ids.length];
+        final TrackedItem[] writes = new TrackedItem[ids.length];
+        String lastPlayer = null;
+        int lastPlayerId = 0;
+        for (int i = 0; i < ids.length; i++) {
+            final RegistrationPipeline.Registration registration = registrations.get(i);
+            final ItemSnapshot snapshot = registration.snapshot();
+            if (snapshot == null) continue;
+
+            if (!registration.player().equals(lastPlayer)) {
+                lastPlayer = registration.player();
+                lastPlayerId = creators.idOf(lastPlayer);
+            }
+            playerIds[i] = lastPlayerId;
+
+            final Fingerprint fingerprint = fingerprints[i];
+            if (snapshot.itemId() != null) {
+                ids[i] = snapshot.itemId();
+                if (fingerprint != null) {
+                    writes[i] = migrated(ids[i], fingerprint);
+                }
+            } else {
+                writes[i] = new TrackedItem(generateId(), fingerprint.high(), fingerprint.low(), now, lastPlayerId,
+                        itemTypes.idOf(snapshot.type()));
+                ids[i] = writes[i].id();
+            }
         }
 
-        final long newId = generateId();
-        final String fingerprint = ItemIdentifier.createFingerprint(item);
-        final TrackedItem tracked = new TrackedItem(newId, fingerprint, System.currentTimeMillis(), player);
+        final int[] mutations = {0};
+        final Runnable apply = () -> {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] < 0L) continue;
 
-        synchronized (itemDatabase) {
-            itemDatabase.put(newId, tracked);
-            incrementTypeCount(item.getType().name());
+                if (writes[i] != null) {
+                    putItem(writes[i]);
+                    if (!store.isDurable()) {
+                        journal.appendRegister(writes[i]);
+                    }
+                    mutations[0]++;
+                }
+                appendAction(ids[i], now, ItemActionType.fromName(registrations.get(i).action()), playerIds[i]);
+                mutations[0]++;
+            }
+        };
+
+        if (store.storesHistory()) {
+            apply.run();
+        } else {
+            historyLock.readLock().lock();
+            try {
+                journal.batch(apply);
+            } finally {
+                historyLock.readLock().unlock();
+            }
         }
 
-        ItemIdentifier.markItem(item, newId);
-        scheduleAsyncSave();
-        checkForDuplicatesAsync(newId, player, action);
+        flushScheduler.markDirty(mutations[0]);
+        final long[] localChecks = ids.clone();
+        for (int i = 0; i < ids.length; i++) {
+            final RegistrationPipeline.Registration registration = registrations.get(i);
+            if (ids[i] >= 0L) {
+                publishAction(ids[i], now, ItemActionType.fromName(registration.action()), registration.player());
+            }
+            if (writes[i] != null && checkNetworkDuplicatesAsync(writes[i], registration.player(), registration.action())) {
+                localChecks[i] = -1L;
+            }
+        }
+        checkForDuplicatesAsync(registrations, localChecks);
+        return ids;
+    }
 
-        return newId;
+    public int mergeRemote(List<RemoteItem> items) {
+        if (loadState != LoadState.READY || store.isShared()) return 0; // shared stores already hold remote writes
+
+        final int[] merged = {0};
+        final LongArrayList conflicts = new LongArrayList();
+        final Runnable apply = () -> {
+            for (final RemoteItem remote : items) {
+                final TrackedItem current = store.get(remote.id());
+                if (current != null) {
+                    if (current.hasFingerprint(remote.fingerprintHigh(), remote.fingerprintLow())) continue;
+                    // Only the origin re-fingerprinting the same item keeps its creation time and creator
+                    if (current.timestamp() != remote.timestamp()
+                            || !creators.nameOf(current.creatorId()).equals(remote.creator())) {
+                        conflicts.add(remote.id());
+                        continue;
+                    }
+                }
+
+                final TrackedItem item = new TrackedItem(remote.id(), remote.fingerprintHigh(), remote.fingerprintLow(),
+                        remote.timestamp(), creators.idOf(remote.creator()), itemTypes.idOf(remote.type()));
+                putItem(item);
+                if (!store.isDurable()) {
+                    journal.appendRegister(item);
+                }
+                merged[0]++;
+            }
+        };
+
+        if (store.isDurable()) {
+            apply.run();
+        } else {
+            journal.batch(apply);
+        }
+        flushScheduler.markDirty(merged[0]);
+        if (!conflicts.isEmpty()) {
+            plugin.getSLF4JLogger().warn("Rejected {} remote items whose ids are already used by different local items "
+                    + "(first: {}); check that every server has its own node id", conflicts.size(), conflicts.getLong(0));
+        }
+        return merged[0];
     }
 
-    public List<TrackedItem> findDuplicates(long itemId) {
-        if (!initialized) return List.of();
+    // Stream delivery is at-least-once, so replayed actions are checked against the recorded history
+    public int mergeRemoteActions(List<RemoteAction> actions, boolean replay) {
+        if (loadState != LoadState.READY || store.isShared()) return 0;
+
+        final int[] merged = {0};
+        final Runnable apply = () -> {
+            for (final RemoteAction remote : actions) {
+                if (store.get(remote.id()) == null) continue; // never registered here, or already removed
+
+                final int playerId = creators.idOf(remote.player());
+                if (replay && isRecorded(remote, playerId)) continue;
+
+                appendAction(remote.id(), remote.timestamp(), remote.action(), playerId);
+                merged[0]++;
+            }
+        };
 
-        final TrackedItem target;
-        synchronized (itemDatabase) {
-            target = itemDatabase.get(itemId);
+        if (store.storesHistory()) {
+            apply.run();
+        } else {
+            historyLock.readLock().lock();
+            try {
+                journal.batch(apply);
+            } finally {
+                historyLock.readLock().unlock();
+            }
         }
+        flushScheduler.markDirty(merged[0]);
+        return merged[0];
+    }
 
-        if (target == null) return List.of();
+    private boolean isRecorded(RemoteAction action, int playerId) {
+        final List<ItemHistory.Entry> recorded = store.storesHistory()
+                ? store.latestActions(action.id(), historyLimit)
+                : history.latest(action.id(), historyLimit);
+        for (final ItemHistory.Entry entry : recorded) {
+            if (entry.timestamp() / 1000L == action.timestamp() / 1000L // the in-memory history keeps seconds
+                    && entry.action() == action.action() && entry.playerId() == playerId) return true;
+        }
+        return false;
+    }
 
-        final String targetFingerprint = target.fingerprint();
-        final List<TrackedItem> duplicates = new ArrayList<>(4);
+    public int removeRemote(LongList ids) {
+        if (loadState != LoadState.READY || store.isShared()) return 0;
 
-        synchronized (itemDatabase) {
-            for (final TrackedItem item : itemDatabase.values()) {
-                if (item.id() != itemId && targetFingerprint.equals(item.fingerprint())) {
-                    duplicates.add(item);
-                    if (duplicates.size() >= 100) break; // Limit results for performance
+        final int[] removed = {0};
+        final Runnable apply = () -> {
+            for (int i = 0; i < ids.size(); i++) {
+                final long id = ids.getLong(i);
+                if (dropItem(id) == null) continue;
+
+                if (!store.isDurable()) {
+                    journal.appendRemoval(RegistryJournal.DELETE, id);
                 }
+                removed[0]++;
+            }
+        };
+
+        if (store.isDurable()) {
+            apply.run();
+        } else {
+            journal.batch(apply);
+        }
+        flushScheduler.markDirty(removed[0]);
+        return removed[0];
+    }
+
+    private TrackedItem migrated(long id, Fingerprint fingerprint) {
+        final TrackedItem current = store.get(id);
+        if (current == null) return null;
+
+        return new TrackedItem(id, fingerprint.high(), fingerprint.low(),
+                current.timestamp(), current.creatorId(), current.typeId());
+    }
+
+    public List<TrackedItem> findDuplicates(long itemId) {
+        if (loadState != LoadState.READY) return List.of();
+
+        final TrackedItem target = store.get(itemId);
+        if (target == null) return List.of();
+
+        final long[] matches = fingerprintIndex.get(target.fingerprintHigh());
+        if (matches.length <= 1 && !store.isShared()) return List.of();
+
+        final List<TrackedItem> duplicates = new ArrayList<>(Math.max(0, matches.length - 1));
+        for (final long id : matches) {
+            if (id == itemId) continue;
+
+            final TrackedItem candidate = store.get(id);
+            if (candidate != null && candidate.hasFingerprint(target.fingerprintHigh(), target.fingerprintLow())) {
+                duplicates.add(candidate);
             }
         }
 
+        if (store.isShared()) {
+            for (final TrackedItem candidate : store.findByFingerprint(target.fingerprintHigh(), target.fingerprintLow())) {
+                if (candidate.id() != itemId && !containsId(duplicates, candidate.id())) {
+                    duplicates.add(candidate);
+                }
+            }
+        }
         return duplicates;
     }
 
+    public List<List<TrackedItem>> findDuplicates(long[] itemIds) {
+        final List<List<TrackedItem>> results = new ArrayList<>(itemIds.length);
+        for (final long itemId : itemIds) {
+            results.add(itemId < 0L ? List.of() : findDuplicates(itemId));
+        }
+        return results;
+    }
+
     public TrackedItem getItem(long id) {
-        synchronized (itemDatabase) {
-            return itemDatabase.get(id);
+        return store.get(id);
+    }
+
+    public boolean removeItem(long id) {
+        final TrackedItem removed = dropItem(id);
+        if (removed == null) return false;
+        if (!store.isDurable()) {
+            journal.appendRemoval(RegistryJournal.DELETE, id);
         }
+
+        flushScheduler.markDirty(1);
+        publishRemoval(removed);
+        return true;
     }
 
     public List<ItemAction> getItemHistory(long id) {
-        return List.of(new ItemAction(System.currentTimeMillis(), "TRACKED", "SYSTEM"));
+        return getItemHistory(id, Integer.MAX_VALUE);
     }
 
-    public Object2LongOpenHashMap<String> getItemTypeStatistics() {
-        synchronized (itemDatabase) {
-            return itemTypeCount.clone();
+    public List<ItemAction> getItemHistory(long id, int limit) {
+        final List<ItemHistory.Entry> entries = store.storesHistory()
+                ? store.latestActions(id, limit)
+                : history.latest(id, limit);
+        final List<ItemAction> actions = new ArrayList<>(entries.size());
+        for (final ItemHistory.Entry entry : entries) {
+            actions.add(new ItemAction(entry.timestamp(), entry.action().name(), creators.nameOf(entry.playerId())));
         }
+        return actions;
     }
 
-    private long generateId() {
-        return ID_GENERATOR.getAndIncrement() | (ThreadLocalRandom.current().nextLong() & 0xFFFFL);
+    public String getCreator(TrackedItem item) {
+        return creators.nameOf(item.creatorId());
     }
 
-    private void incrementTypeCount(String type) {
-        itemTypeCount.put(type, itemTypeCount.getLong(type) + 1L);
+    public NameDictionary getCreators() {
+        return creators;
     }
 
-    private void checkForDuplicatesAsync(long itemId, String player, String action) {
-        if (!shouldCheckForDuplicates(action)) return;
+    public NameDictionary getItemTypes() {
+        return itemTypes;
+    }
 
-        CompletableFuture.supplyAsync(() -> findDuplicates(itemId))
-                .thenAccept(duplicates -> {
-                    if (!duplicates.isEmpty() && plugin.getDupeDebugManager() != null) {
-                        plugin.getServer().getScheduler().runTask(plugin, () ->
-                                plugin.getDupeDebugManager().broadcastDupeAlert(player, itemId, duplicates.size())
-                        );
-                    }
-                });
+    public int getNodeId() {
+        return idAllocator.node();
     }
 
-    private boolean shouldCheckForDuplicates(String action) {
-        return !"LOGIN_SCAN".equals(action) && !"DEBUG_SCAN".equals(action) && !"MOVED".equals(action);
+    public int getPendingFingerprintMigrations() {
+        return migration.pending();
     }
 
-    private void loadFromDiskAsync() {
-        CompletableFuture.runAsync(() -> {
-            try {
-                final ByteBuffer buffer = ByteBuffer.allocate((int) Files.size(dataFile));
-                fileChannel.read(buffer, 0, buffer, new CompletionHandler<Integer, ByteBuffer>() {
-                    @Override
-                    public void completed(Integer result, ByteBuffer attachment) {
-                        if (result > 0) {
-                            attachment.flip();
-                            deserializeData(attachment);
-                        }
-                    }
+    public PipelineStats getPipelineStats() {
+        return pipeline.stats();
+    }
 
-                    @Override
-                    public void failed(Throwable exc, ByteBuffer attachment) {
-                        plugin.getSLF4JLogger().error("Failed to load data", exc);
-                    }
-                });
-            } catch (IOException e) {
-                plugin.getSLF4JLogger().error("Error reading data file", e);
+    public FlushStats getFlushStats() {
+        return flushScheduler.stats();
+    }
+
+    public TierStats getTierStats() {
+        return store.tierStats();
+    }
+
+    public FilterStats getFilterStats() {
+        final FingerprintFilter filter = fingerprintFilter;
+        return filter == null ? null : filter.stats();
+    }
+
+    public Object2LongOpenHashMap<String> getItemTypeStatistics() {
+        final Object2LongOpenHashMap<String> statistics = new Object2LongOpenHashMap<>(256);
+        for (int slot = 0; slot < typeCounts.length(); slot++) {
+            final long count = typeCounts.get(slot);
+            if (count > 0L) {
+                statistics.put(slot == 0 ? "UNKNOWN" : itemTypes.nameOf(slot - 1), count);
             }
-        });
+        }
+        return statistics;
     }
 
-    private void scheduleAsyncSave() {
-        plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, this::persistToDisk, 100L);
+    private long generateId() {
+        return idAllocator.next();
     }
 
-    private void persistToDisk() {
-        if (fileChannel == null) return;
+    private int nodeId(int saved) throws IOException {
+        int configured = plugin.getConfigManager().getInt("storage.node-id", -1);
+        if (configured > IdAllocator.MAX_NODE) {
+            plugin.getSLF4JLogger().warn("storage.node-id {} is above {}, using the saved node id instead",
+                    configured, IdAllocator.MAX_NODE);
+            configured = -1;
+        }
 
-        final ByteBuffer buffer = serializeData();
-        fileChannel.write(buffer, 0, buffer, new CompletionHandler<Integer, ByteBuffer>() {
-            @Override
-            public void completed(Integer result, ByteBuffer attachment) {
-                // Success - no action needed
+        // Servers sharing Redis exchange item ids, so a picked-at-random node id is not good enough there
+        final RedisManager redis = plugin.getRedisManager();
+        if (redis == null || !redis.isEnabled()) return configured;
+        if (configured >= 0) {
+            if (!redis.claimNodeId(configured)) {
+                plugin.getSLF4JLogger().warn("storage.node-id {} could not be claimed in Redis, another server may be using it",
+                        configured);
             }
+            return configured;
+        }
 
-            @Override
-            public void failed(Throwable exc, ByteBuffer attachment) {
-                plugin.getSLF4JLogger().error("Failed to save data", exc);
+        final int leased = redis.leaseNodeId(saved, IdAllocator.MAX_NODE);
+        if (leased < 0) {
+            throw new IOException("Redis is enabled but no node id could be leased from it; set storage.node-id explicitly");
+        }
+        return leased;
+    }
+
+    private ItemStore createStore(String engine) {
+        if ("tiered".equalsIgnoreCase(engine)) {
+            final String coldEngine = plugin.getConfigManager().getString("storage.tiered.cold-engine", "mmap");
+            final ItemStore cold = "tiered".equalsIgnoreCase(coldEngine) ? null : createStore(coldEngine);
+            return new TieredItemStore(cold != null && cold.isDurable() ? cold : createStore("mmap"),
+                    plugin.getConfigManager().getInt("storage.tiered.hot-items", 100_000), CONCURRENCY);
+        }
+        if ("mysql".equalsIgnoreCase(engine) || "mariadb".equalsIgnoreCase(engine)) {
+            final JdbcConnectionPool pool = new JdbcConnectionPool(
+                    plugin.getConfigManager().getString("storage.sql.url", "jdbc:mysql://localhost:3306/antidupe"),
+                    plugin.getConfigManager().getString("storage.sql.username", "antidupe"),
+                    plugin.getConfigManager().getString("storage.sql.password", ""),
+                    plugin.getConfigManager().getInt("storage.sql.pool-size", 4),
+                    plugin.getConfigManager().getLong("storage.sql.connection-timeout-ms", 5000L));
+            return new SqlItemStore(pool, creators, itemTypes,
+                    plugin.getConfigManager().getInt("storage.flush.batch-size", 512), 1 << 16, CONCURRENCY);
+        }
+        if ("sqlite".equalsIgnoreCase(engine)) {
+            return new SqliteItemStore(plugin.getDataFolder().toPath().resolve("items.db"),
+                    plugin.getConfigManager().getInt("storage.flush.batch-size", 512), 1 << 16, CONCURRENCY);
+        }
+        if ("mmap".equalsIgnoreCase(engine)) {
+            return new MappedItemStore(plugin.getDataFolder().toPath().resolve("items-mmap"), INITIAL_CAPACITY);
+        }
+        return new HeapItemStore(INITIAL_CAPACITY, CONCURRENCY);
+    }
+
+    private void putItem(TrackedItem item) {
+        final TrackedItem previous = store.put(item);
+        if (previous != null) {
+            unindexItem(previous);
+        }
+        indexItem(item);
+    }
+
+    private TrackedItem dropItem(long id) {
+        final TrackedItem removed = store.remove(id);
+        if (removed != null) {
+            unindexItem(removed);
+            migration.take(id);
+            history.remove(id);
+        }
+        return removed;
+    }
+
+    private void indexItem(TrackedItem item) {
+        final FingerprintFilter filter = fingerprintFilter;
+        if (filter != null) {
+            filter.add(item.fingerprintHigh(), item.fingerprintLow());
+        }
+        final FingerprintFilter rebuilding = pendingFilter;
+        if (rebuilding != null) {
+            rebuilding.add(item.fingerprintHigh(), item.fingerprintLow());
+        }
+        fingerprintIndex.add(item.fingerprintHigh(), item.id());
+        evictionBuckets.add(item.id(), item.timestamp());
+        typeCounts.incrementAndGet(typeSlot(item.typeId()));
+    }
+
+    private void unindexItem(TrackedItem item) {
+        final FingerprintFilter filter = fingerprintFilter;
+        if (filter != null) {
+            filter.remove(item.fingerprintHigh(), item.fingerprintLow());
+        }
+        fingerprintIndex.remove(item.fingerprintHigh(), item.id());
+        typeCounts.decrementAndGet(typeSlot(item.typeId()));
+    }
+
+    private static int typeSlot(int typeId) {
+        return typeId >= 0 && typeId < MAX_TRACKED_TYPES - 1 ? typeId + 1 : 0;
+    }
+
+    private static boolean containsId(List<TrackedItem> items, long id) {
+        for (final TrackedItem item : items) {
+            if (item.id() == id) return true;
+        }
+        return false;
+    }
+
+    private void appendAction(long id, long timestamp, ItemActionType type, int playerId) {
+        if (store.storesHistory()) {
+            store.appendAction(id, timestamp, type, playerId);
+        } else {
+            journal.appendAction(id, timestamp, type, playerId);
+            history.record(id, timestamp, type, playerId);
+        }
+    }
+
+    // Remote applies go through dropItem and appendAction directly so they are never published back
+    private void publishAction(long id, long timestamp, ItemActionType type, String player) {
+        final RedisManager redis = plugin.getRedisManager();
+        if (redis != null) {
+            redis.publishAction(id, timestamp, type, player);
+        }
+    }
+
+    private void publishRemoval(TrackedItem item) {
+        final RedisManager redis = plugin.getRedisManager();
+        if (redis != null) {
+            redis.publishRemoval(item);
+        }
+    }
+
+    private boolean checkNetworkDuplicatesAsync(TrackedItem item, String player, String action) {
+        final RedisManager redis = plugin.getRedisManager();
+        if (redis == null || !redis.isEnabled()) return false;
+
+        final boolean alert = shouldCheckForDuplicates(action);
+        redis.indexFingerprint(item).thenAccept(duplicates -> {
+            if (alert && duplicates.count() > 0) {
+                alertDuplicates(player, item.id(), duplicates.count());
+            }
+        }).exceptionally(error -> {
+            if (alert) {
+                checkForDuplicatesAsync(item.id(), player, action);
             }
+            return null;
         });
+        return true;
     }
 
-    private ByteBuffer serializeData() {
-        synchronized (itemDatabase) {
-            final ByteBuffer buffer = ByteBuffer.allocate(itemDatabase.size() * 64 + 4);
-            buffer.putInt(itemDatabase.size());
+    private void checkForDuplicatesAsync(long itemId, String player, String action) {
+        if (!shouldCheckForDuplicates(action)) return;
+        checkForDuplicatesAsync(new long[] {itemId}, new String[] {player});
+    }
 
-            for (final TrackedItem item : itemDatabase.values()) {
-                buffer.putLong(item.id());
-                writeString(buffer, item.fingerprint());
-                buffer.putLong(item.timestamp());
-                writeString(buffer, item.creator());
+    private void checkForDuplicatesAsync(List<RegistrationPipeline.Registration> registrations, long[] itemIds) {
+        final long[] checked = itemIds.clone();
+        final String[] players = new String[itemIds.length];
+        for (int i = 0; i < itemIds.length; i++) {
+            final RegistrationPipeline.Registration registration = registrations.get(i);
+            if (checked[i] < 0L || !shouldCheckForDuplicates(registration.action())) {
+                checked[i] = -1L;
+            } else {
+                players[i] = registration.player();
             }
+        }
+        checkForDuplicatesAsync(checked, players);
+    }
 
-            buffer.flip();
-            return buffer;
+    private void checkForDuplicatesAsync(long[] itemIds, String[] players) {
+        final FingerprintFilter filter = store.isShared() ? null : fingerprintFilter;
+        final LongArrayList candidates = new LongArrayList(itemIds.length);
+        final List<String> candidatePlayers = new ArrayList<>(itemIds.length);
+        for (int i = 0; i < itemIds.length; i++) {
+            final long itemId = itemIds[i];
+            if (itemId < 0L) continue;
+            if (filter != null) {
+                final TrackedItem item = store.get(itemId);
+                if (item == null || !filter.mightHaveDuplicate(item.fingerprintHigh(), item.fingerprintLow())) continue;
+            }
+            candidates.add(itemId);
+            candidatePlayers.add(players[i]);
         }
+        if (candidates.isEmpty()) return;
+
+        CompletableFuture.supplyAsync(() -> findDuplicates(candidates.toLongArray()))
+                .thenAccept(results -> {
+                    for (int i = 0; i < results.size(); i++) {
+                        final long itemId = candidates.getLong(i);
+                        final String player = candidatePlayers.get(i);
+                        final int duplicates = results.get(i).size();
+                        if (duplicates == 0) {
+                            if (filter != null) {
+                                filter.recordFalsePositive();
+                            }
+                        } else {
+                            alertDuplicates(player, itemId, duplicates);
+                        }
+                    }
+                });
     }
 
-    private void deserializeData(ByteBuffer buffer) {
-        final int count = buffer.getInt();
+    private void alertDuplicates(String player, long itemId, int duplicates) {
+        if (plugin.getDupeDebugManager() != null) {
+            plugin.getServer().getScheduler().runTask(plugin, () ->
+                    plugin.getDupeDebugManager().broadcastDupeAlert(player, itemId, duplicates)
+            );
+        }
+        final RedisManager redis = plugin.getRedisManager();
+        if (redis != null && redis.isEnabled()) {
+            redis.publishDupeAlert(player, itemId, duplicates);
+        }
+    }
 
-        synchronized (itemDatabase) {
-            for (int i = 0; i < count && buffer.hasRemaining(); i++) {
-                final long id = buffer.getLong();
-                final String fingerprint = readString(buffer);
-                final long timestamp = buffer.getLong();
-                final String creator = readString(buffer);
+    private boolean shouldCheckForDuplicates(String action) {
+        return !"LOGIN_SCAN".equals(action) && !"DEBUG_SCAN".equals(action) && !"MOVED".equals(action);
+    }
 
-                itemDatabase.put(id, new TrackedItem(id, fingerprint, timestamp, creator));
-            }
+    private void rebuildFilter() {
+        final FingerprintFilter rebuilt = new FingerprintFilter(Math.max(INITIAL_CAPACITY, store.size() * 2));
+        this.pendingFilter = rebuilt;
+        store.forEach(item -> rebuilt.add(item.fingerprintHigh(), item.fingerprintLow()));
+        this.fingerprintFilter = rebuilt;
+        this.pendingFilter = null;
+    }
+
+    private void rebuildIndexes() {
+        store.forEach(this::indexItem);
+        final int total = store.size();
+
+        plugin.getServer().getScheduler().runTask(plugin, () ->
+                plugin.getSLF4JLogger().info("Loaded {} tracked items from mapped storage", total));
+    }
+
+    private void loadSnapshot() throws IOException {
+        Files.deleteIfExists(SnapshotWriter.tempFile(dataFile));
+        if (!Files.exists(dataFile) || Files.size(dataFile) == 0) return;
+
+        this.loader = new SnapshotLoader(dataFile, LOAD_CHUNK_BYTES,
+                Runtime.getRuntime().availableProcessors(), creators::idOf);
+        final long started = System.currentTimeMillis();
+        final long loaded = loader.load(this::putItem);
+        plugin.getSLF4JLogger().info("Decoded {} snapshot records in {}ms", loaded,
+                System.currentTimeMillis() - started);
+        if (loader.truncatedBytes() > 0) {
+            plugin.getSLF4JLogger().warn("Dropped a partial trailing record ({} bytes) from {}",
+                    loader.truncatedBytes(), dataFile.getFileName());
+        }
+        if (loader.corruptBlocks() > 0) {
+            plugin.getSLF4JLogger().warn("Skipped {} corrupt snapshot blocks ({} records) in {}; journal replay may recover some of them",
+                    loader.corruptBlocks(), loader.skippedRecords(), dataFile.getFileName());
         }
+    }
+
+    private void replayJournal() throws IOException {
+        final long actionsCovered = store.storesHistory() ? 0L : history.coveredOffset(journal.epoch());
+        final int replayed = journal.replay(new RegistryJournal.Replay() {
+            @Override
+            public void register(TrackedItem item) {
+                putItem(item);
+            }
+
+            @Override
+            public void remove(long id) {
+                dropItem(id);
+            }
+
+            @Override
+            public void action(long id, long timestamp, ItemActionType action, int playerId) {
+                history.record(id, timestamp, action, playerId);
+            }
+
+        }, actionsCovered);
+        final int total = store.size();
 
         plugin.getServer().getScheduler().runTask(plugin, () ->
-                plugin.getSLF4JLogger().info("Loaded {} tracked items", count));
+                plugin.getSLF4JLogger().info("Loaded {} tracked items ({} journal records replayed)", total, replayed));
     }
 
-    private void writeString(ByteBuffer buffer, String str) {
-        final byte[] bytes = str.getBytes();
-        buffer.putInt(bytes.length);
-        buffer.put(bytes);
+    private void persistToDisk() {
+        synchronized (persistLock) {
+            try {
+                journal.flush(fsync);
+                if (store.isDurable() && fsync) {
+                    store.flush();
+                }
+                if (journal.size() >= journalCompactBytes) {
+                    compact();
+                }
+                migration.saveIfChanged();
+                idAllocator.saveIfAdvanced();
+            } catch (IOException e) {
+                plugin.getSLF4JLogger().error("Failed to save data", e);
+            }
+        }
     }
 
-    private String readString(ByteBuffer buffer) {
-        final int length = buffer.getInt();
-        final byte[] bytes = new byte[length];
-        buffer.get(bytes);
-        return new String(bytes);
+    private void compact() throws IOException {
+        final ItemHistory.Snapshot actions;
+        historyLock.writeLock().lock();
+        try {
+            journal.flush(false);
+            actions = history.capture(journal.epoch(), journal.size());
+        } finally {
+            historyLock.writeLock().unlock();
+        }
+
+        if (store.isDurable()) {
+            store.flush();
+        } else {
+            new SnapshotWriter(dataFile, SnapshotLoader.BLOCK_RECORDS, snapshotCodec).write(store);
+        }
+        if (!store.storesHistory()) {
+            history.save(actions);
+        }
+        journal.truncate();
     }
 
     private void startMaintenanceTask() {
         new BukkitRunnable() {
             @Override
             public void run() {
-                synchronized (itemDatabase) {
-                    if (itemDatabase.size() > 50_000) {
-                        final long cutoff = System.currentTimeMillis() - 604_800_000L; // 7 days
-                        itemDatabase.values().removeIf(item -> item.timestamp() < cutoff);
+                if (loadState != LoadState.READY) return;
+
+                try {
+                    idAllocator.saveIfAdvanced();
+                } catch (IOException e) {
+                    plugin.getSLF4JLogger().error("Failed to save id allocator state", e);
+                }
+
+                final FingerprintFilter filter = fingerprintFilter;
+                if (filter != null && filter.items() > filter.capacity()) {
+                    rebuildFilter();
+                }
+                if (retentionMillis <= 0L || store.size() <= retentionMinItems) return;
+
+                final long cutoff = System.currentTimeMillis() - retentionMillis;
+                final int evicted = evictionBuckets.evict(cutoff, evictionSlice, id -> {
+                    final TrackedItem item = store.get(id);
+                    if (item == null || item.timestamp() >= cutoff) return false;
+
+                    final TrackedItem removed = dropItem(id);
+                    if (removed == null) return false;
+                    if (!store.isDurable()) {
+                        journal.appendRemoval(RegistryJournal.EVICT, id);
                     }
+                    publishRemoval(removed);
+                    return true;
+                });
+
+                if (evicted > 0) {
+                    flushScheduler.markDirty(evicted);
                 }
             }
-        }.runTaskTimerAsynchronously(plugin, 72000L, 72000L); // Every hour
+        }.runTaskTimerAsynchronously(plugin, 1200L, 100L); // Every 5 seconds
     }
 
     public void shutdown() {
-        try {
-            if (fileChannel != null && fileChannel.isOpen()) {
-                persistToDisk();
-                Thread.sleep(100); // Allow save to complete
-                fileChannel.close();
+        if (loadState != LoadState.READY) return;
+
+        pipeline.stop();
+        flushScheduler.stop();
+
+        synchronized (persistLock) {
+            try {
+                compact();
+                journal.flush(true);
+                journal.close();
+                migration.saveIfChanged();
+                idAllocator.saveIfAdvanced();
+                store.close();
+                creators.close();
+                itemTypes.close();
+            } catch (IOException e) {
+                plugin.getSLF4JLogger().error("Error during shutdown", e);
             }
-        } catch (IOException | InterruptedException e) {
-            plugin.getSLF4JLogger().error("Error during shutdown", e);
         }
     }
 
-    public record TrackedItem(long id, String fingerprint, long timestamp, String creator) {}
+    public record TrackedItem(long id, long fingerprintHigh, long fingerprintLow, long timestamp,
+                              int creatorId, int typeId) {
+
+        public Fingerprint fingerprint() {
+            return new Fingerprint(fingerprintHigh, fingerprintLow);
+        }
+
+        public boolean hasFingerprint(long high, long low) {
+            return fingerprintHigh == high && fingerprintLow == low;
+        }
+    }
+
+    public enum LoadState {
+        PENDING, LOADING, READY, FAILED
+    }
+
     public record ItemAction(long timestamp, String action, String player) {}
-}
\ No newline at end of file
+
+    public record RemoteItem(long id, long fingerprintHigh, long fingerprintLow, long timestamp,
+                             String creator, String type) {}
+
+    public record RemoteAction(long id, long timestamp, ItemActionType action, String player) {}
+
+    public record PipelineStats(int queued, long submitted, long registered, long dropped, int pendingStamps) {
+    }
+
+    public record FlushStats(long pendingMutations, long flushes, long currentLagMillis,
+                             long lastLagMillis, long maxLagMillis) {}
+
+    public record FilterStats(long items, int capacity, double estimatedFalsePositiveRate,
+                              long checks, long negatives, long falsePositives, long memoryBytes) {
+
+        // Share of the checks that passed the filter but found no duplicate
+        public double observedFalsePositiveRate() {
+            final long passed = checks - negatives;
+            return passed <= 0L ? 0.0 : falsePositives / (double) passed;
+        }
+    }
+
+    public record TierStats(long hits, long misses, int hotItems, int hotCapacity, int totalItems) {
+
+        public double hitRate() {
+            final long lookups = hits + misses;
+            return lookups == 0L ? 0.0 : hits / (double) lookups;
+        }
+    }
+}
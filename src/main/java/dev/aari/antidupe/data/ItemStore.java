@@ -0,0 +1,48 @@
+package dev.aari.antidupe.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+interface ItemStore extends Closeable {
+
+    void open() throws IOException;
+
+    ItemRegistry.TrackedItem get(long id);
+
+    ItemRegistry.TrackedItem put(ItemRegistry.TrackedItem item);
+
+    ItemRegistry.TrackedItem remove(long id);
+
+    int size();
+
+    void forEach(Consumer<ItemRegistry.TrackedItem> action);
+
+    boolean isDurable();
+
+    void flush() throws IOException;
+
+    default boolean isShared() {
+        return false;
+    }
+
+    default List<ItemRegistry.TrackedItem> findByFingerprint(long high, long low) {
+        return List.of();
+    }
+
+    default boolean storesHistory() {
+        return false;
+    }
+
+    default void appendAction(long id, long timestamp, ItemActionType action, int playerId) {
+    }
+
+    default List<ItemHistory.Entry> latestActions(long id, int limit) {
+        return List.of();
+    }
+
+    default ItemRegistry.TierStats tierStats() {
+        return null;
+    }
+}
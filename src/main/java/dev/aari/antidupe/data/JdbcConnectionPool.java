@@ -0,0 +1,107 @@
+package dev.aari.antidupe.data;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+final class JdbcConnectionPool implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final long borrowTimeoutMillis;
+    private final BlockingQueue<Connection> idle;
+    private final Connection[] slots;
+    private volatile boolean closed;
+
+    JdbcConnectionPool(String url, String username, String password, int size, long borrowTimeoutMillis) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, size));
+        this.slots = new Connection[Math.max(1, size)];
+    }
+
+    void open() throws SQLException {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = connect();
+            idle.add(slots[i]);
+        }
+    }
+
+    Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        final Connection connection;
+        try {
+            connection = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        if (connection == null) {
+            throw new SQLException("No database connection available within " + borrowTimeoutMillis + "ms");
+        }
+
+        if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) return connection;
+
+        closeQuietly(connection);
+        try {
+            return replace(connection, connect());
+        } catch (SQLException e) {
+            idle.add(connection);
+            throw e;
+        }
+    }
+
+    void release(Connection connection) {
+        if (closed) {
+            closeQuietly(connection);
+            return;
+        }
+        idle.add(connection);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (slots) {
+            for (final Connection connection : slots) {
+                if (connection != null) {
+                    closeQuietly(connection);
+                }
+            }
+        }
+        idle.clear();
+    }
+
+    private Connection replace(Connection stale, Connection fresh) {
+        synchronized (slots) {
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] == stale) {
+                    slots[i] = fresh;
+                }
+            }
+        }
+        return fresh;
+    }
+
+    private Connection connect() throws SQLException {
+        return username == null || username.isEmpty()
+                ? DriverManager.getConnection(url)
+                : DriverManager.getConnection(url, username, password);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package dev.aari.antidupe.data;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+final class JdbcWriteQueue {
+
+    static final Object REMOVED = new Object();
+
+    private static final long RETRY_MILLIS = 100L;
+    private static final long MAX_RETRY_MILLIS = 5000L;
+
+    private final String threadName;
+    private final int batchSize;
+    private final BlockingQueue<Write> queue;
+    private final ConcurrentLongMap<Object> pending;
+    private final Loader loader;
+    private final BatchWriter target;
+    private final Object progress = new Object();
+    private volatile Thread writer;
+    private volatile boolean stopping;
+    private long enqueued;
+    private volatile long committed;
+    private volatile SQLException failure;
+
+    JdbcWriteQueue(String threadName, int batchSize, int capacity, int concurrency, Loader loader, BatchWriter target) {
+        this.threadName = threadName;
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new LinkedBlockingQueue<>(Math.max(this.batchSize, capacity));
+        this.pending = new ConcurrentLongMap<>(this.batchSize, concurrency);
+        this.loader = loader;
+        this.target = target;
+    }
+
+    void start() {
+        this.writer = new Thread(this::drain, threadName);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    ItemRegistry.TrackedItem current(long id) {
+        return resolve(id, pending.get(id));
+    }
+
+    // "What did this replace" comes from the overlay while a write is in flight and from a primary key
+    // lookup otherwise. Updates for one id run under its stripe lock, and the overlay entry is only
+    // cleared after its batch commits, so the lookup never misses a write queued before it.
+    ItemRegistry.TrackedItem put(ItemRegistry.TrackedItem item) {
+        final ItemRegistry.TrackedItem[] previous = new ItemRegistry.TrackedItem[1];
+        pending.update(item.id(), staged -> {
+            previous[0] = resolve(item.id(), staged);
+            enqueue(new PutItem(item));
+            return item;
+        });
+        return previous[0];
+    }
+
+    ItemRegistry.TrackedItem remove(long id) {
+        final ItemRegistry.TrackedItem[] previous = new ItemRegistry.TrackedItem[1];
+        pending.update(id, staged -> {
+            previous[0] = resolve(id, staged);
+            if (previous[0] == null) return staged;
+
+            enqueue(new RemoveItem(id));
+            return REMOVED;
+        });
+        return previous[0];
+    }
+
+    private ItemRegistry.TrackedItem resolve(long id, Object staged) {
+        if (staged == REMOVED) return null;
+        if (staged != null) return (ItemRegistry.TrackedItem) staged;
+
+        try {
+            return loader.load(id);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read tracked item " + id, e);
+        }
+    }
+
+    void action(long id, long timestamp, ItemActionType action, int playerId) {
+        enqueue(new AppendAction(id, timestamp, action, playerId));
+    }
+
+    void awaitCommitted() {
+        synchronized (progress) {
+            final long target = enqueued;
+            while (committed < target && failure == null && writer != null && writer.isAlive()) {
+                try {
+                    progress.wait(100L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    SQLException takeFailure() {
+        final SQLException error = failure;
+        failure = null;
+        return error;
+    }
+
+    void stop() {
+        final Thread current = writer;
+        if (current == null) return;
+
+        stopping = true;
+        enqueue(new Stop());
+        try {
+            current.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    private void enqueue(Write write) {
+        synchronized (progress) {
+            enqueued++;
+        }
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing " + threadName + " write", e);
+        }
+    }
+
+    private void drain() {
+        final List<Write> batch = new ArrayList<>(batchSize);
+        boolean running = true;
+        try {
+            while (running) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                running = !(batch.getLast() instanceof Stop);
+
+                commit(batch);
+
+                for (final Write write : batch) {
+                    switch (write) {
+                        case PutItem put -> pending.update(put.item().id(), staged -> staged == put.item() ? null : staged);
+                        case RemoveItem remove -> pending.update(remove.id(), staged -> staged == REMOVED ? null : staged);
+                        default -> {
+                        }
+                    }
+                }
+
+                synchronized (progress) {
+                    committed += batch.size();
+                    progress.notifyAll();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    // Failed batches stay in the overlay and are retried until they commit. Once stopping, each
+    // batch gets one more attempt so shutdown cannot hang on an unreachable database.
+    private void commit(List<Write> batch) throws InterruptedException {
+        long backoff = RETRY_MILLIS;
+        while (true) {
+            try {
+                target.write(batch);
+                failure = null;
+                return;
+            } catch (SQLException e) {
+                failure = e;
+                synchronized (progress) {
+                    progress.notifyAll();
+                }
+                if (stopping) return;
+            }
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    interface Loader {
+        ItemRegistry.TrackedItem load(long id) throws SQLException;
+    }
+
+    interface BatchWriter {
+        void write(List<Write> batch) throws SQLException;
+    }
+
+    sealed interface Write permits PutItem, RemoveItem, AppendAction, Stop {}
+
+    record PutItem(ItemRegistry.TrackedItem item) implements Write {}
+
+    record RemoveItem(long id) implements Write {}
+
+    record AppendAction(long id, long timestamp, ItemActionType action, int playerId) implements Write {}
+
+    record Stop() implements Write {}
+}
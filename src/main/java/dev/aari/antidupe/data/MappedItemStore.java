@@ -0,0 +1,253 @@
+package dev.aari.antidupe.data;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+final class MappedItemStore implements ItemStore {
+
+    private static final int RECORD_BYTES = 40;
+    private static final int RECORDS_PER_SEGMENT = 1 << 20;
+    private static final long SEGMENT_BYTES = (long) RECORDS_PER_SEGMENT * RECORD_BYTES;
+
+    private static final int ID_OFFSET = 0;
+    private static final int HIGH_OFFSET = 8;
+    private static final int LOW_OFFSET = 16;
+    private static final int TIMESTAMP_OFFSET = 24;
+    private static final int CREATOR_OFFSET = 32;
+    private static final int STATE_OFFSET = 36;
+    private static final int TYPE_OFFSET = 38;
+
+    private static final byte SLOT_EMPTY = 0;
+    private static final byte SLOT_LIVE = 1;
+    private static final byte SLOT_FREE = 2;
+    private static final long NO_SLOT = -1L;
+
+    private final Path directory;
+    private final List<MappedByteBuffer> segments;
+    private final Long2LongOpenHashMap slots;
+    private final LongArrayList freeSlots;
+    private final StampedLock lock = new StampedLock();
+    private long nextSlot;
+
+    MappedItemStore(Path directory, int initialCapacity) {
+        this.directory = directory;
+        this.segments = new ArrayList<>();
+        this.slots = new Long2LongOpenHashMap(initialCapacity);
+        this.slots.defaultReturnValue(NO_SLOT);
+        this.freeSlots = new LongArrayList();
+    }
+
+    @Override
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+
+        for (int segment = 0; Files.exists(segmentPath(segment)); segment++) {
+            final MappedByteBuffer buffer = mapSegment(segment);
+            segments.add(buffer);
+
+            for (int record = 0; record < RECORDS_PER_SEGMENT; record++) {
+                final int offset = record * RECORD_BYTES;
+                final byte state = buffer.get(offset + STATE_OFFSET);
+                if (state == SLOT_EMPTY) continue;
+
+                final long slot = (long) segment * RECORDS_PER_SEGMENT + record;
+                if (state == SLOT_LIVE) {
+                    slots.put(buffer.getLong(offset + ID_OFFSET), slot);
+                } else {
+                    freeSlots.add(slot);
+                }
+                nextSlot = slot + 1;
+            }
+        }
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem get(long id) {
+        final long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                final long slot = slots.get(id);
+                final ItemRegistry.TrackedItem item = slot == NO_SLOT ? null : read(slot);
+                if (lock.validate(stamp)) return item;
+            } catch (RuntimeException ignored) {
+                // a writer resized the index or remapped segments mid-read, retry under the lock
+            }
+        }
+
+        final long readStamp = lock.readLock();
+        try {
+            final long slot = slots.get(id);
+            return slot == NO_SLOT ? null : read(slot);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem put(ItemRegistry.TrackedItem item) {
+        final long stamp = lock.writeLock();
+        try {
+            final long existing = slots.get(item.id());
+            if (existing != NO_SLOT) {
+                final ItemRegistry.TrackedItem previous = read(existing);
+                write(existing, item);
+                return previous;
+            }
+
+            final long slot = allocateSlot();
+            write(slot, item);
+            slots.put(item.id(), slot);
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem remove(long id) {
+        final long stamp = lock.writeLock();
+        try {
+            final long slot = slots.remove(id);
+            if (slot == NO_SLOT) return null;
+
+            final ItemRegistry.TrackedItem previous = read(slot);
+            segment(slot).put(offset(slot) + STATE_OFFSET, SLOT_FREE);
+            freeSlots.add(slot);
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        final long stamp = lock.tryOptimisticRead();
+        final int size = slots.size();
+        if (lock.validate(stamp)) return size;
+
+        final long readStamp = lock.readLock();
+        try {
+            return slots.size();
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<ItemRegistry.TrackedItem> action) {
+        final long stamp = lock.readLock();
+        try {
+            for (long slot = 0; slot < nextSlot; slot++) {
+                if (segment(slot).get(offset(slot) + STATE_OFFSET) == SLOT_LIVE) {
+                    action.accept(read(slot));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        final long stamp = lock.readLock();
+        try {
+            for (final MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        final long stamp = lock.writeLock();
+        try {
+            segments.clear();
+            slots.clear();
+            freeSlots.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private long allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.removeLong(freeSlots.size() - 1);
+        }
+
+        final long slot = nextSlot++;
+        final int segment = (int) (slot / RECORDS_PER_SEGMENT);
+        if (segment == segments.size()) {
+            try {
+                segments.add(mapSegment(segment));
+            } catch (IOException e) {
+                nextSlot--;
+                throw new IllegalStateException("Failed to map item segment " + segment, e);
+            }
+        }
+        return slot;
+    }
+
+    private ItemRegistry.TrackedItem read(long slot) {
+        final MappedByteBuffer buffer = segment(slot);
+        final int offset = offset(slot);
+
+        return new ItemRegistry.TrackedItem(
+                buffer.getLong(offset + ID_OFFSET),
+                buffer.getLong(offset + HIGH_OFFSET),
+                buffer.getLong(offset + LOW_OFFSET),
+                buffer.getLong(offset + TIMESTAMP_OFFSET),
+                buffer.getInt(offset + CREATOR_OFFSET),
+                (buffer.getShort(offset + TYPE_OFFSET) & 0xFFFF) - 1);
+    }
+
+    private void write(long slot, ItemRegistry.TrackedItem item) {
+        final MappedByteBuffer buffer = segment(slot);
+        final int offset = offset(slot);
+
+        buffer.putLong(offset + ID_OFFSET, item.id());
+        buffer.putLong(offset + HIGH_OFFSET, item.fingerprintHigh());
+        buffer.putLong(offset + LOW_OFFSET, item.fingerprintLow());
+        buffer.putLong(offset + TIMESTAMP_OFFSET, item.timestamp());
+        buffer.putInt(offset + CREATOR_OFFSET, item.creatorId());
+        buffer.putShort(offset + TYPE_OFFSET, (short) (item.typeId() + 1));
+        buffer.put(offset + STATE_OFFSET, SLOT_LIVE);
+    }
+
+    private MappedByteBuffer segment(long slot) {
+        return segments.get((int) (slot / RECORDS_PER_SEGMENT));
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+    }
+
+    private MappedByteBuffer mapSegment(int segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0L, SEGMENT_BYTES);
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("segment-%05d.seg", segment));
+    }
+}
@@ -0,0 +1,116 @@
+package dev.aari.antidupe.data;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class NameDictionary implements Closeable {
+
+    public static final int UNKNOWN = -1;
+
+    private static final int MAX_NAME_BYTES = 255;
+
+    private final Path path;
+    private final ConcurrentHashMap<String, Integer> ids;
+    private volatile String[] names;
+    private int size;
+    private FileChannel channel;
+
+    NameDictionary(Path path) {
+        this.path = path;
+        this.ids = new ConcurrentHashMap<>(1024);
+        this.names = new String[1024];
+    }
+
+    void open() throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(0L)), 64 * 1024));
+        final byte[] buffer = new byte[MAX_NAME_BYTES];
+        long validEnd = 0L;
+        try {
+            while (true) {
+                final int length = input.readUnsignedByte();
+                input.readFully(buffer, 0, length);
+                assign(new String(buffer, 0, length, StandardCharsets.UTF_8));
+                validEnd += Byte.BYTES + length;
+            }
+        } catch (EOFException ignored) {
+            // Torn tail entry, everything before validEnd is intact
+        }
+
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+    }
+
+    public int idOf(String name) {
+        final Integer existing = ids.get(name);
+        if (existing != null) return existing;
+
+        synchronized (this) {
+            final Integer raced = ids.get(name);
+            if (raced != null) return raced;
+
+            final byte[] bytes = truncate(name.getBytes(StandardCharsets.UTF_8));
+            final int id = assign(name);
+            try {
+                final ByteBuffer entry = ByteBuffer.allocate(Byte.BYTES + bytes.length)
+                        .put((byte) bytes.length)
+                        .put(bytes)
+                        .flip();
+                while (entry.hasRemaining()) {
+                    channel.write(entry);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to persist dictionary entry " + name, e);
+            }
+            return id;
+        }
+    }
+
+    public String nameOf(int id) {
+        final String[] current = names;
+        return id >= 0 && id < current.length && current[id] != null ? current[id] : "unknown";
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private synchronized int assign(String name) {
+        final int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[id] = name;
+        ids.put(name, id);
+        return id;
+    }
+
+    private static byte[] truncate(byte[] bytes) {
+        return bytes.length <= MAX_NAME_BYTES ? bytes : Arrays.copyOf(bytes, MAX_NAME_BYTES);
+    }
+}
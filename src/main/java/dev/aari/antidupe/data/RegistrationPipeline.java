@@ -0,0 +1,159 @@
+package dev.aari.antidupe.data;
+
+import dev.aari.antidupe.AntiDupe;
+import dev.aari.antidupe.util.Fingerprint;
+import dev.aari.antidupe.util.ItemIdentifier;
+import dev.aari.antidupe.util.ItemSnapshot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+final class RegistrationPipeline {
+
+    private static final int MAX_BATCH = 256;
+    private static final int STAGE_QUEUE_BATCHES = 16;
+    private static final int STAMPS_PER_TICK = 512;
+    private static final Registration STOP = new Registration(null, null, null, null);
+    private static final Batch STOP_BATCH = new Batch(List.of(), new Fingerprint[0]);
+
+    private final AntiDupe plugin;
+    private final ItemRegistry registry;
+    private final BlockingQueue<Registration> ring;
+    private final BlockingQueue<Batch> fingerprinted = new ArrayBlockingQueue<>(STAGE_QUEUE_BATCHES);
+    private final ConcurrentLinkedQueue<Stamp> stamps = new ConcurrentLinkedQueue<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder registered = new LongAdder();
+    private Thread fingerprintStage;
+    private Thread applyStage;
+    private BukkitTask stampTask;
+
+    RegistrationPipeline(AntiDupe plugin, ItemRegistry registry, int capacity) {
+        this.plugin = plugin;
+        this.registry = registry;
+        this.ring = new ArrayBlockingQueue<>(Math.max(MAX_BATCH, capacity));
+    }
+
+    void start() {
+        fingerprintStage = new Thread(this::runFingerprintStage, "AntiDupe-Fingerprint");
+        applyStage = new Thread(this::runApplyStage, "AntiDupe-Register");
+        fingerprintStage.setDaemon(true);
+        applyStage.setDaemon(true);
+        fingerprintStage.start();
+        applyStage.start();
+        stampTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::stampIds, 1L, 1L);
+    }
+
+    boolean submit(ItemStack item, ItemSnapshot snapshot, String action, String player) {
+        if (!ring.offer(new Registration(item, snapshot, action, player))) {
+            dropped.increment();
+            return false;
+        }
+        submitted.increment();
+        return true;
+    }
+
+    ItemRegistry.PipelineStats stats() {
+        return new ItemRegistry.PipelineStats(ring.size(), submitted.sum(), registered.sum(), dropped.sum(), stamps.size());
+    }
+
+    void stop() {
+        if (fingerprintStage == null) return;
+
+        try {
+            ring.put(STOP);
+            fingerprintStage.join();
+            applyStage.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (stampTask != null) {
+            stampTask.cancel();
+            stampTask = null;
+        }
+        stampIds(Integer.MAX_VALUE);
+        fingerprintStage = null;
+    }
+
+    private void runFingerprintStage() {
+        final List<Registration> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (true) {
+                batch.add(ring.take());
+                ring.drainTo(batch, MAX_BATCH - 1);
+
+                final boolean stopping = batch.getLast() == STOP;
+                if (stopping) {
+                    batch.removeLast();
+                }
+                if (!batch.isEmpty()) {
+                    final List<Registration> registrations = List.copyOf(batch);
+                    try {
+                        fingerprinted.put(new Batch(registrations, registry.fingerprint(registrations)));
+                    } catch (RuntimeException e) {
+                        plugin.getSLF4JLogger().error("Failed to fingerprint {} items", registrations.size(), e);
+                    }
+                }
+                batch.clear();
+                if (stopping) {
+                    fingerprinted.put(STOP_BATCH);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runApplyStage() {
+        try {
+            while (true) {
+                final Batch batch = fingerprinted.take();
+                if (batch == STOP_BATCH) return;
+
+                try {
+                    final long[] ids = registry.apply(batch.registrations(), batch.fingerprints());
+                    for (int i = 0; i < ids.length; i++) {
+                        final Registration registration = batch.registrations().get(i);
+                        if (ids[i] >= 0L && registration.snapshot().itemId() == null) {
+                            stamps.add(new Stamp(registration.item(), ids[i]));
+                        }
+                    }
+                    registered.add(ids.length);
+                } catch (RuntimeException e) {
+                    plugin.getSLF4JLogger().error("Failed to register {} items", batch.registrations().size(), e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stampIds() {
+        stampIds(STAMPS_PER_TICK);
+    }
+
+    private void stampIds(int limit) {
+        Stamp stamp;
+        for (int i = 0; i < limit && (stamp = stamps.poll()) != null; i++) {
+            if (ItemIdentifier.getItemId(stamp.item()) == null) {
+                ItemIdentifier.markItem(stamp.item(), stamp.id());
+            }
+        }
+    }
+
+    record Registration(ItemStack item, ItemSnapshot snapshot, String action, String player) {
+    }
+
+    private record Batch(List<Registration> registrations, Fingerprint[] fingerprints) {
+    }
+
+    private record Stamp(ItemStack item, long id) {
+    }
+}
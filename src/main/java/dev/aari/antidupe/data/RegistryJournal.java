@@ -0,0 +1,229 @@
+package dev.aari.antidupe.data;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+final class RegistryJournal implements Closeable {
+
+    static final byte EVICT = 2;
+    static final byte DELETE = 3;
+    static final byte REGISTER = 4;
+    static final byte ACTION = 5;
+
+    private static final int FILE_MAGIC = 0x41444A31; // "ADJ1"
+    private static final int FILE_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int HEADER_BYTES = Integer.BYTES + Byte.BYTES;
+    private static final int TRAILER_BYTES = Integer.BYTES;
+    private static final int MAX_PAYLOAD = 1 << 16;
+    private static final int READ_BUFFER = 1 << 20;
+
+    private final Path path;
+    private final Object pendingLock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private FileChannel channel;
+    private volatile long size;
+    private long epoch;
+
+    RegistryJournal(Path path) {
+        this.path = path;
+    }
+
+    void open() throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // read until the header is complete or the file ends
+        }
+        if (!header.hasRemaining() && header.getInt(0) == FILE_MAGIC) {
+            this.epoch = header.getLong(Integer.BYTES);
+            this.size = channel.size();
+        } else {
+            reset(System.currentTimeMillis());
+        }
+    }
+
+    void appendRegister(ItemRegistry.TrackedItem item) {
+        synchronized (pendingLock) {
+            final int start = beginRecord(REGISTER, Long.BYTES * 4 + Integer.BYTES * 2);
+            pending.putLong(item.id())
+                    .putLong(item.fingerprintHigh())
+                    .putLong(item.fingerprintLow())
+                    .putLong(item.timestamp())
+                    .putInt(item.creatorId())
+                    .putInt(item.typeId());
+            endRecord(start);
+        }
+    }
+
+    void appendAction(long id, long timestamp, ItemActionType action, int playerId) {
+        synchronized (pendingLock) {
+            final int start = beginRecord(ACTION, Long.BYTES * 2 + Byte.BYTES + Integer.BYTES);
+            pending.putLong(id)
+                    .putLong(timestamp)
+                    .put((byte) action.ordinal())
+                    .putInt(playerId);
+            endRecord(start);
+        }
+    }
+
+    void appendRemoval(byte type, long id) {
+        synchronized (pendingLock) {
+            final int start = beginRecord(type, Long.BYTES);
+            pending.putLong(id);
+            endRecord(start);
+        }
+    }
+
+    void batch(Runnable appends) {
+        synchronized (pendingLock) {
+            appends.run();
+        }
+    }
+
+    long flush(boolean fsync) throws IOException {
+        final ByteBuffer batch;
+        synchronized (pendingLock) {
+            if (pending.position() == 0) return 0L;
+            batch = pending.flip();
+            pending = ByteBuffer.allocate(Math.max(64 * 1024, batch.capacity() / 2));
+        }
+
+        final long written = batch.remaining();
+        channel.position(size);
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        size += written;
+        if (fsync) {
+            channel.force(false);
+        }
+        return written;
+    }
+
+    void truncate() throws IOException {
+        reset(epoch + 1);
+    }
+
+    long size() {
+        return size;
+    }
+
+    long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Replays every intact record. ACTION records ending at or before {@code actionsCovered} are skipped
+     * because the history snapshot taken at that offset already contains them.
+     */
+    int replay(Replay target, long actionsCovered) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(FILE_HEADER_BYTES)), READ_BUFFER));
+        final CRC32C crc = new CRC32C();
+        final byte[] payload = new byte[MAX_PAYLOAD];
+        long validEnd = FILE_HEADER_BYTES;
+        int applied = 0;
+
+        try {
+            records:
+            while (true) {
+                final int length = input.readInt();
+                final byte type = input.readByte();
+                if (length < 0 || length > MAX_PAYLOAD) break;
+
+                input.readFully(payload, 0, length);
+                crc.reset();
+                crc.update(type);
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != input.readInt()) break;
+
+                final ByteBuffer record = ByteBuffer.wrap(payload, 0, length);
+                final long recordEnd = validEnd + HEADER_BYTES + length + TRAILER_BYTES;
+                switch (type) {
+                    case REGISTER -> target.register(new ItemRegistry.TrackedItem(
+                            record.getLong(), record.getLong(), record.getLong(), record.getLong(), record.getInt(),
+                            record.getInt()));
+                    case EVICT, DELETE -> target.remove(record.getLong());
+                    case ACTION -> {
+                        if (recordEnd > actionsCovered) {
+                            target.action(record.getLong(), record.getLong(),
+                                    ItemActionType.fromOrdinal(record.get()), record.getInt());
+                        }
+                    }
+                    default -> {
+                        break records;
+                    }
+                }
+
+                validEnd = recordEnd;
+                applied++;
+            }
+        } catch (EOFException ignored) {
+            // Torn tail record, everything before validEnd is intact
+        }
+
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+        }
+        size = validEnd;
+        return applied;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private void reset(long newEpoch) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(FILE_MAGIC).putLong(newEpoch).flip();
+        channel.truncate(0L);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+        epoch = newEpoch;
+        size = FILE_HEADER_BYTES;
+    }
+
+    private int beginRecord(byte type, int payload) {
+        ensureCapacity(HEADER_BYTES + payload + TRAILER_BYTES);
+        pending.putInt(payload).put(type);
+        return pending.position() - Byte.BYTES;
+    }
+
+    private void endRecord(int start) {
+        final CRC32C crc = new CRC32C();
+        crc.update(pending.array(), start, pending.position() - start);
+        pending.putInt((int) crc.getValue());
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() >= bytes) return;
+
+        final ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+        grown.put(pending.flip());
+        pending = grown;
+    }
+
+    interface Replay {
+
+        void register(ItemRegistry.TrackedItem item);
+
+        void remove(long id);
+
+        void action(long id, long timestamp, ItemActionType action, int playerId);
+    }
+}
@@ -0,0 +1,120 @@
+package dev.aari.antidupe.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+enum SnapshotCodec {
+
+    NONE(0) {
+        @Override
+        void compress(ByteBuffer input, ByteBuffer output, int stride) {
+            output.put(input);
+        }
+
+        @Override
+        void decompress(ByteBuffer input, ByteBuffer output, int stride) throws IOException {
+            if (input.remaining() != output.remaining()) {
+                throw new IOException("Stored block length " + input.remaining() + " != " + output.remaining());
+            }
+            output.put(input);
+        }
+    },
+
+    DEFLATE(1) {
+        @Override
+        void compress(ByteBuffer input, ByteBuffer output, int stride) throws IOException {
+            final byte[] planes = new byte[input.remaining()];
+            shuffle(input, planes, stride);
+
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+            try {
+                deflater.setInput(planes);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (!output.hasRemaining()) {
+                        throw new IOException("Compressed block exceeds " + output.capacity() + " bytes");
+                    }
+                    deflater.deflate(output);
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        void decompress(ByteBuffer input, ByteBuffer output, int stride) throws IOException {
+            final byte[] planes = new byte[output.remaining()];
+            final Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(input);
+                int filled = 0;
+                while (filled < planes.length && !inflater.finished()) {
+                    final int read = inflater.inflate(planes, filled, planes.length - filled);
+                    if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    filled += read;
+                }
+                if (filled < planes.length) {
+                    throw new IOException("Compressed block ended " + (planes.length - filled) + " bytes short");
+                }
+                unshuffle(planes, output, stride);
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt compressed block", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    };
+
+    private final int id;
+
+    SnapshotCodec(int id) {
+        this.id = id;
+    }
+
+    int id() {
+        return id;
+    }
+
+    int maxCompressedLength(int length) {
+        return length + (length >>> 10) + 64;
+    }
+
+    abstract void compress(ByteBuffer input, ByteBuffer output, int stride) throws IOException;
+
+    abstract void decompress(ByteBuffer input, ByteBuffer output, int stride) throws IOException;
+
+    private static void shuffle(ByteBuffer input, byte[] planes, int stride) {
+        final int records = planes.length / stride;
+        final int start = input.position();
+        for (int record = 0; record < records; record++) {
+            final int at = start + record * stride;
+            for (int b = 0; b < stride; b++) {
+                planes[b * records + record] = input.get(at + b);
+            }
+        }
+        input.position(start + planes.length);
+    }
+
+    private static void unshuffle(byte[] planes, ByteBuffer output, int stride) {
+        final int records = planes.length / stride;
+        for (int record = 0; record < records; record++) {
+            for (int b = 0; b < stride; b++) {
+                output.put(planes[b * records + record]);
+            }
+        }
+    }
+
+    static SnapshotCodec fromId(int id) throws IOException {
+        for (final SnapshotCodec codec : values()) {
+            if (codec.id == id) return codec;
+        }
+        throw new IOException("Unknown snapshot codec " + id);
+    }
+
+    static SnapshotCodec fromConfig(String name) {
+        return "none".equalsIgnoreCase(name) ? NONE : DEFLATE;
+    }
+}
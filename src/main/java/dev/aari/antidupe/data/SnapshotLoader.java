@@ -0,0 +1,291 @@
+package dev.aari.antidupe.data;
+
+import dev.aari.antidupe.util.Fingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32C;
+
+final class SnapshotLoader {
+
+    static final int FORMAT_MAGIC = 0x41445053; // "ADPS"
+    static final short FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 36;
+    static final int BLOCK_HEADER_BYTES = Integer.BYTES * 3;
+    static final int BLOCK_RECORDS = 8192;
+    static final int RECORD_BYTES = Long.BYTES * 4 + Integer.BYTES * 2;
+
+    private static final int MAX_STRING_BYTES = 1 << 16;
+
+    private final Path file;
+    private final int chunkBytes;
+    private final int parallelism;
+    private final ToIntFunction<String> creators;
+    private final AtomicLong decoded = new AtomicLong();
+    private final AtomicInteger corruptBlocks = new AtomicInteger();
+    private final AtomicLong skippedRecords = new AtomicLong();
+    private volatile long expected;
+    private volatile int truncatedBytes;
+
+    SnapshotLoader(Path file, int chunkBytes, int parallelism, ToIntFunction<String> creators) {
+        this.file = file;
+        this.chunkBytes = Math.max(chunkBytes, SnapshotCodec.DEFLATE.maxCompressedLength(BLOCK_RECORDS * RECORD_BYTES));
+        this.parallelism = Math.max(1, parallelism);
+        this.creators = creators;
+    }
+
+    long load(Consumer<ItemRegistry.TrackedItem> sink) throws IOException {
+        final BlockingQueue<ByteBuffer> pool = new ArrayBlockingQueue<>(parallelism * 2);
+        for (int i = 0; i < parallelism * 2; i++) {
+            pool.add(ByteBuffer.allocate(chunkBytes));
+        }
+
+        final AtomicInteger threadIndex = new AtomicInteger();
+        final ExecutorService decoders = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "AntiDupe-Loader-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header);
+            header.flip();
+            if (header.remaining() < Integer.BYTES) return 0L;
+
+            if (header.getInt(0) == FORMAT_MAGIC) {
+                readBlocks(channel, header, pool, decoders, chunks, sink);
+            } else {
+                readLegacy(channel, header, pool, decoders, chunks, sink);
+            }
+
+            CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw new IOException("Failed to decode snapshot", e.getCause());
+        } finally {
+            decoders.shutdownNow();
+        }
+
+        final long missing = expected - decoded.get() - skippedRecords.get();
+        if (missing > 0L) {
+            corruptBlocks.compareAndSet(0, 1);
+            skippedRecords.addAndGet(missing);
+        }
+        return decoded.get();
+    }
+
+    int corruptBlocks() {
+        return corruptBlocks.get();
+    }
+
+    long skippedRecords() {
+        return skippedRecords.get();
+    }
+
+    int truncatedBytes() {
+        return truncatedBytes;
+    }
+
+    private void readBlocks(FileChannel channel, ByteBuffer header, BlockingQueue<ByteBuffer> pool,
+                            ExecutorService decoders, List<CompletableFuture<Void>> chunks,
+                            Consumer<ItemRegistry.TrackedItem> sink) throws IOException {
+        final short version = header.remaining() >= HEADER_BYTES ? header.getShort(4) : 0;
+        if (version != FORMAT_VERSION || header.getShort(6) != RECORD_BYTES) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        if ((int) crc(header, 0, HEADER_BYTES - Integer.BYTES) != header.getInt(HEADER_BYTES - Integer.BYTES)) {
+            throw new IOException("Corrupt snapshot header in " + file);
+        }
+
+        final int blockRecords = header.getInt(8);
+        final SnapshotCodec codec = SnapshotCodec.fromId(header.getInt(28));
+        final ThreadLocal<ByteBuffer> inflated = ThreadLocal.withInitial(() ->
+                ByteBuffer.allocate(blockRecords * RECORD_BYTES));
+        this.expected = header.getLong(12);
+        channel.position(HEADER_BYTES);
+
+        final ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        while (true) {
+            if (readFully(channel, blockHeader.clear()) < BLOCK_HEADER_BYTES) return;
+
+            final int records = blockHeader.getInt(0);
+            final int stored = blockHeader.getInt(4);
+            final int checksum = blockHeader.getInt(8);
+            if (records <= 0 || records > blockRecords || stored <= 0 || stored > chunkBytes) {
+                corruptBlocks.incrementAndGet();
+                return;
+            }
+
+            final ByteBuffer block = take(pool);
+            block.limit(stored);
+            if (readFully(channel, block) < stored) {
+                pool.add(block.clear());
+                corruptBlocks.incrementAndGet();
+                return;
+            }
+
+            final ByteBuffer full = block.flip();
+            chunks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    if ((int) crc(full, 0, full.limit()) != checksum) {
+                        skip(records);
+                    } else if (codec == SnapshotCodec.NONE) {
+                        decode(full, sink);
+                    } else {
+                        final ByteBuffer raw = inflated.get().clear().limit(records * RECORD_BYTES);
+                        codec.decompress(full, raw, RECORD_BYTES);
+                        decode(raw.flip(), sink);
+                    }
+                } catch (IOException e) {
+                    skip(records);
+                } finally {
+                    pool.add(full.clear());
+                }
+            }, decoders));
+        }
+    }
+
+    private void skip(int records) {
+        corruptBlocks.incrementAndGet();
+        skippedRecords.addAndGet(records);
+    }
+
+    // The old writer never truncated items.dat, so bytes past the counted records are stale leftovers
+    // of an earlier, larger save and are never parsed.
+    private void readLegacy(FileChannel channel, ByteBuffer header, BlockingQueue<ByteBuffer> pool,
+                            ExecutorService decoders, List<CompletableFuture<Void>> chunks,
+                            Consumer<ItemRegistry.TrackedItem> sink) throws IOException {
+        this.expected = header.getInt();
+        channel.position(Integer.BYTES);
+
+        long remaining = expected;
+        ByteBuffer chunk = take(pool);
+        while (remaining > 0L) {
+            final boolean eof = channel.read(chunk) < 0;
+            if (chunk.hasRemaining() && !eof) continue;
+
+            chunk.flip();
+            int end = 0;
+            while (remaining > 0L) {
+                final int length = legacyRecordLength(chunk, end);
+                if (length < 0) break;
+                end += length;
+                remaining--;
+            }
+            if (end == 0 && chunk.limit() == chunk.capacity()) {
+                throw new IOException("Snapshot record larger than load chunk at " + channel.position());
+            }
+            if (eof && remaining > 0L) {
+                truncatedBytes = chunk.limit() - end;
+            }
+
+            final ByteBuffer next = eof || remaining == 0L ? null : take(pool);
+            if (next != null) {
+                next.put(chunk.array(), end, chunk.limit() - end);
+            }
+
+            final ByteBuffer full = chunk.limit(end);
+            chunks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    decodeLegacy(full, sink);
+                } finally {
+                    pool.add(full.clear());
+                }
+            }, decoders));
+
+            if (next == null) return;
+            chunk = next;
+        }
+        pool.add(chunk.clear());
+    }
+
+    double progress() {
+        final long total = expected;
+        return total <= 0L ? 0.0 : Math.min(1.0, decoded.get() / (double) total);
+    }
+
+    private void decode(ByteBuffer chunk, Consumer<ItemRegistry.TrackedItem> sink) {
+        while (chunk.hasRemaining()) {
+            sink.accept(new ItemRegistry.TrackedItem(chunk.getLong(), chunk.getLong(), chunk.getLong(),
+                    chunk.getLong(), chunk.getInt(), chunk.getInt()));
+            decoded.incrementAndGet();
+        }
+    }
+
+    private void decodeLegacy(ByteBuffer chunk, Consumer<ItemRegistry.TrackedItem> sink) {
+        while (chunk.hasRemaining()) {
+            final long id = chunk.getLong();
+            final Fingerprint fingerprint = Fingerprint.fromHex(readString(chunk));
+            final long timestamp = chunk.getLong();
+            final int creator = creators.applyAsInt(readString(chunk));
+
+            sink.accept(new ItemRegistry.TrackedItem(id, fingerprint.high(), fingerprint.low(), timestamp,
+                    creator, NameDictionary.UNKNOWN));
+            decoded.incrementAndGet();
+        }
+    }
+
+    private static int legacyRecordLength(ByteBuffer chunk, int position) throws IOException {
+        final int hexAt = position + Long.BYTES;
+        if (hexAt + Integer.BYTES > chunk.limit()) return -1;
+
+        final int creatorAt = hexAt + Integer.BYTES + stringLength(chunk, hexAt) + Long.BYTES;
+        if (creatorAt + Integer.BYTES > chunk.limit()) return -1;
+
+        final int end = creatorAt + Integer.BYTES + stringLength(chunk, creatorAt);
+        return end > chunk.limit() ? -1 : end - position;
+    }
+
+    private static int stringLength(ByteBuffer chunk, int at) throws IOException {
+        final int length = chunk.getInt(at);
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Corrupt snapshot string length " + length);
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes);
+    }
+
+    static long crc(ByteBuffer buffer, int offset, int length) {
+        final CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(offset + length).position(offset));
+        return crc.getValue();
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) break;
+        }
+        return buffer.position() - start;
+    }
+
+    private static ByteBuffer take(BlockingQueue<ByteBuffer> pool) throws IOException {
+        try {
+            return pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package dev.aari.antidupe.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+final class SnapshotWriter {
+
+    private final Path file;
+    private final Path temp;
+    private final int blockRecords;
+    private final SnapshotCodec codec;
+
+    SnapshotWriter(Path file, int blockRecords, SnapshotCodec codec) {
+        this.file = file;
+        this.temp = tempFile(file);
+        this.blockRecords = Math.max(1, blockRecords);
+        this.codec = codec;
+    }
+
+    static Path tempFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    long write(ItemStore source) throws IOException {
+        final ByteBuffer block = ByteBuffer.allocate(
+                Math.min(blockRecords, Math.max(1, source.size())) * SnapshotLoader.RECORD_BYTES);
+        final ByteBuffer stored = ByteBuffer.allocate(
+                SnapshotLoader.BLOCK_HEADER_BYTES + codec.maxCompressedLength(block.capacity()));
+        final long[] count = {0L};
+
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(SnapshotLoader.HEADER_BYTES);
+
+            try {
+                source.forEach(item -> {
+                    if (!block.hasRemaining()) {
+                        writeBlock(channel, block, stored);
+                    }
+                    block.putLong(item.id())
+                            .putLong(item.fingerprintHigh())
+                            .putLong(item.fingerprintLow())
+                            .putLong(item.timestamp())
+                            .putInt(item.creatorId())
+                            .putInt(item.typeId());
+                    count[0]++;
+                });
+                writeBlock(channel, block, stored);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(SnapshotLoader.HEADER_BYTES)
+                    .putInt(SnapshotLoader.FORMAT_MAGIC)
+                    .putShort(SnapshotLoader.FORMAT_VERSION)
+                    .putShort((short) SnapshotLoader.RECORD_BYTES)
+                    .putInt(blockRecords)
+                    .putLong(count[0])
+                    .putLong(System.currentTimeMillis())
+                    .putInt(codec.id());
+            header.putInt((int) SnapshotLoader.crc(header, 0, header.position())).flip();
+            writeFully(channel, header, 0L);
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count[0];
+    }
+
+    private void writeBlock(FileChannel channel, ByteBuffer block, ByteBuffer stored) {
+        if (block.position() == 0) return;
+
+        try {
+            stored.clear().position(SnapshotLoader.BLOCK_HEADER_BYTES);
+            codec.compress(block.flip(), stored, SnapshotLoader.RECORD_BYTES);
+            final int length = stored.position() - SnapshotLoader.BLOCK_HEADER_BYTES;
+            stored.putInt(0, block.limit() / SnapshotLoader.RECORD_BYTES)
+                    .putInt(Integer.BYTES, length)
+                    .putInt(Integer.BYTES * 2, (int) SnapshotLoader.crc(stored, SnapshotLoader.BLOCK_HEADER_BYTES, length))
+                    .flip();
+            writeFully(channel, stored, channel.position());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        block.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        if (position > channel.position()) {
+            channel.position(position);
+        }
+    }
+}
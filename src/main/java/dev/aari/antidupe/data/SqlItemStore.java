@@ -0,0 +1,323 @@
+package dev.aari.antidupe.data;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+final class SqlItemStore implements ItemStore {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 256;
+    private static final int SCAN_FETCH_SIZE = 1000;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS antidupe_items ("
+                    + "id BIGINT NOT NULL PRIMARY KEY, "
+                    + "fingerprint_high BIGINT NOT NULL, "
+                    + "fingerprint_low BIGINT NOT NULL, "
+                    + "created_at BIGINT NOT NULL, "
+                    + "creator VARCHAR(64) NOT NULL, "
+                    + "item_type VARCHAR(64) NOT NULL, "
+                    + "INDEX antidupe_items_fingerprint (fingerprint_high, fingerprint_low), "
+                    + "INDEX antidupe_items_creator (creator), "
+                    + "INDEX antidupe_items_created (created_at))",
+            "CREATE TABLE IF NOT EXISTS antidupe_item_actions ("
+                    + "seq BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                    + "item_id BIGINT NOT NULL, "
+                    + "acted_at BIGINT NOT NULL, "
+                    + "action TINYINT NOT NULL, "
+                    + "player VARCHAR(64) NOT NULL, "
+                    + "INDEX antidupe_item_actions_item (item_id, acted_at))"
+    };
+
+    private static final String ITEM_COLUMNS = "id, fingerprint_high, fingerprint_low, created_at, creator, item_type";
+    private static final String UPSERT_ITEMS = "INSERT INTO antidupe_items (" + ITEM_COLUMNS + ") VALUES ";
+    private static final String UPSERT_ITEMS_SUFFIX = " ON DUPLICATE KEY UPDATE "
+            + "fingerprint_high = VALUES(fingerprint_high), fingerprint_low = VALUES(fingerprint_low), "
+            + "created_at = VALUES(created_at), creator = VALUES(creator), item_type = VALUES(item_type)";
+    private static final String INSERT_ACTIONS = "INSERT INTO antidupe_item_actions (item_id, acted_at, action, player) VALUES ";
+    private static final String DELETE_ITEMS = "DELETE FROM antidupe_items WHERE id IN ";
+    private static final String DELETE_ACTIONS = "DELETE FROM antidupe_item_actions WHERE item_id IN ";
+    private static final String SELECT_ITEM = "SELECT " + ITEM_COLUMNS + " FROM antidupe_items WHERE id = ?";
+    private static final String SELECT_FINGERPRINT = "SELECT " + ITEM_COLUMNS + " FROM antidupe_items "
+            + "WHERE fingerprint_high = ? AND fingerprint_low = ?";
+    private static final String SELECT_ALL = "SELECT " + ITEM_COLUMNS + " FROM antidupe_items";
+    private static final String COUNT_ITEMS = "SELECT COUNT(*) FROM antidupe_items";
+    private static final String SELECT_ACTIONS = "SELECT acted_at, action, player FROM antidupe_item_actions "
+            + "WHERE item_id = ? ORDER BY acted_at DESC, seq DESC LIMIT ?";
+
+    private final JdbcConnectionPool pool;
+    private final JdbcWriteQueue writes;
+    private final NameDictionary creators;
+    private final NameDictionary itemTypes;
+    private final AtomicInteger size = new AtomicInteger();
+
+    SqlItemStore(JdbcConnectionPool pool, NameDictionary creators, NameDictionary itemTypes,
+                 int batchSize, int queueCapacity, int concurrency) {
+        this.pool = pool;
+        this.creators = creators;
+        this.itemTypes = itemTypes;
+        this.writes = new JdbcWriteQueue("AntiDupe-SQL", batchSize, queueCapacity, concurrency,
+                this::selectItem, this::write);
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            pool.open();
+            final Connection connection = pool.borrow();
+            try (Statement statement = connection.createStatement()) {
+                for (final String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+                try (ResultSet result = statement.executeQuery(COUNT_ITEMS)) {
+                    size.set(result.next() ? result.getInt(1) : 0);
+                }
+            } finally {
+                pool.release(connection);
+            }
+        } catch (SQLException e) {
+            pool.close();
+            throw new IOException("Failed to open SQL item store", e);
+        }
+        writes.start();
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem get(long id) {
+        return writes.current(id);
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem put(ItemRegistry.TrackedItem item) {
+        final ItemRegistry.TrackedItem previous = writes.put(item);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem remove(long id) {
+        final ItemRegistry.TrackedItem removed = writes.remove(id);
+        if (removed != null) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    // Counted at open and kept up to date with this server's writes; other servers' rows since then are not included
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void forEach(Consumer<ItemRegistry.TrackedItem> action) {
+        writes.awaitCommitted();
+        try {
+            final Connection connection = pool.borrow();
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(SCAN_FETCH_SIZE);
+                try (ResultSet result = statement.executeQuery(SELECT_ALL)) {
+                    while (result.next()) {
+                        action.accept(read(result));
+                    }
+                }
+            } finally {
+                pool.release(connection);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to scan tracked items", e);
+        }
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public List<ItemRegistry.TrackedItem> findByFingerprint(long high, long low) {
+        return query(SELECT_FINGERPRINT, high, low, true);
+    }
+
+    @Override
+    public boolean storesHistory() {
+        return true;
+    }
+
+    @Override
+    public void appendAction(long id, long timestamp, ItemActionType action, int playerId) {
+        writes.action(id, timestamp, action, playerId);
+    }
+
+    @Override
+    public List<ItemHistory.Entry> latestActions(long id, int limit) {
+        writes.awaitCommitted();
+        try {
+            final Connection connection = pool.borrow();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_ACTIONS)) {
+                statement.setLong(1, id);
+                statement.setInt(2, limit);
+                final List<ItemHistory.Entry> entries = new ArrayList<>();
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        entries.add(new ItemHistory.Entry(result.getLong(1),
+                                ItemActionType.fromOrdinal(result.getInt(2)), creators.idOf(result.getString(3))));
+                    }
+                }
+                return entries;
+            } finally {
+                pool.release(connection);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read history of " + id, e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writes.awaitCommitted();
+        final SQLException error = writes.takeFailure();
+        if (error != null) {
+            throw new IOException("SQL writer failed", error);
+        }
+    }
+
+    @Override
+    public void close() {
+        writes.stop();
+        pool.close();
+    }
+
+    private ItemRegistry.TrackedItem selectItem(long id) {
+        final List<ItemRegistry.TrackedItem> found = query(SELECT_ITEM, id, 0L, false);
+        return found.isEmpty() ? null : found.getFirst();
+    }
+
+    private List<ItemRegistry.TrackedItem> query(String sql, long first, long second, boolean twoKeys) {
+        try {
+            final Connection connection = pool.borrow();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setLong(1, first);
+                if (twoKeys) {
+                    statement.setLong(2, second);
+                }
+                final List<ItemRegistry.TrackedItem> items = new ArrayList<>(1);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        items.add(read(result));
+                    }
+                }
+                return items;
+            } finally {
+                pool.release(connection);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to query tracked items", e);
+        }
+    }
+
+    private void write(List<JdbcWriteQueue.Write> batch) throws SQLException {
+        final Connection connection = pool.borrow();
+        try {
+            connection.setAutoCommit(false);
+            int start = 0;
+            while (start < batch.size()) {
+                final Class<?> kind = batch.get(start).getClass();
+                int end = start + 1;
+                while (end < batch.size() && end - start < MAX_ROWS_PER_STATEMENT && batch.get(end).getClass() == kind) {
+                    end++;
+                }
+                writeRun(connection, batch.subList(start, end));
+                start = end;
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    private void writeRun(Connection connection, List<JdbcWriteQueue.Write> run) throws SQLException {
+        switch (run.getFirst()) {
+            case JdbcWriteQueue.PutItem ignored -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        UPSERT_ITEMS + rows("(?, ?, ?, ?, ?, ?)", run.size()) + UPSERT_ITEMS_SUFFIX)) {
+                    int index = 1;
+                    for (final JdbcWriteQueue.Write write : run) {
+                        final ItemRegistry.TrackedItem item = ((JdbcWriteQueue.PutItem) write).item();
+                        statement.setLong(index++, item.id());
+                        statement.setLong(index++, item.fingerprintHigh());
+                        statement.setLong(index++, item.fingerprintLow());
+                        statement.setLong(index++, item.timestamp());
+                        statement.setString(index++, creators.nameOf(item.creatorId()));
+                        statement.setString(index++, itemTypes.nameOf(item.typeId()));
+                    }
+                    statement.executeUpdate();
+                }
+            }
+            case JdbcWriteQueue.RemoveItem ignored -> {
+                final String ids = rows("?", run.size());
+                try (PreparedStatement items = connection.prepareStatement(DELETE_ITEMS + "(" + ids + ")");
+                     PreparedStatement actions = connection.prepareStatement(DELETE_ACTIONS + "(" + ids + ")")) {
+                    for (int i = 0; i < run.size(); i++) {
+                        final long id = ((JdbcWriteQueue.RemoveItem) run.get(i)).id();
+                        items.setLong(i + 1, id);
+                        actions.setLong(i + 1, id);
+                    }
+                    items.executeUpdate();
+                    actions.executeUpdate();
+                }
+            }
+            case JdbcWriteQueue.AppendAction ignored -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        INSERT_ACTIONS + rows("(?, ?, ?, ?)", run.size()))) {
+                    int index = 1;
+                    for (final JdbcWriteQueue.Write write : run) {
+                        final JdbcWriteQueue.AppendAction action = (JdbcWriteQueue.AppendAction) write;
+                        statement.setLong(index++, action.id());
+                        statement.setLong(index++, action.timestamp());
+                        statement.setInt(index++, action.action().ordinal());
+                        statement.setString(index++, creators.nameOf(action.playerId()));
+                    }
+                    statement.executeUpdate();
+                }
+            }
+            case JdbcWriteQueue.Stop ignored -> {
+            }
+        }
+    }
+
+    private ItemRegistry.TrackedItem read(ResultSet result) throws SQLException {
+        return new ItemRegistry.TrackedItem(result.getLong(1), result.getLong(2), result.getLong(3),
+                result.getLong(4), creators.idOf(result.getString(5)), itemTypes.idOf(result.getString(6)));
+    }
+
+    private static String rows(String row, int count) {
+        final StringBuilder builder = new StringBuilder(count * (row.length() + 2));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(row);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,307 @@
+package dev.aari.antidupe.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+final class SqliteItemStore implements ItemStore {
+
+    private static final String[] SCHEMA = {
+            "PRAGMA journal_mode=WAL",
+            "PRAGMA synchronous=NORMAL",
+            "CREATE TABLE IF NOT EXISTS tracked_items ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "fingerprint_high INTEGER NOT NULL, "
+                    + "fingerprint_low INTEGER NOT NULL, "
+                    + "timestamp INTEGER NOT NULL, "
+                    + "creator INTEGER NOT NULL, "
+                    + "item_type INTEGER NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS tracked_items_fingerprint ON tracked_items (fingerprint_high, fingerprint_low)",
+            "CREATE INDEX IF NOT EXISTS tracked_items_creator ON tracked_items (creator)",
+            "CREATE INDEX IF NOT EXISTS tracked_items_timestamp ON tracked_items (timestamp)",
+            "CREATE TABLE IF NOT EXISTS item_actions ("
+                    + "item_id INTEGER NOT NULL, "
+                    + "timestamp INTEGER NOT NULL, "
+                    + "action INTEGER NOT NULL, "
+                    + "player INTEGER NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS item_actions_item ON item_actions (item_id, timestamp)"
+    };
+
+    private static final String UPSERT_ITEM = "INSERT OR REPLACE INTO tracked_items "
+            + "(id, fingerprint_high, fingerprint_low, timestamp, creator, item_type) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_ITEM = "DELETE FROM tracked_items WHERE id = ?";
+    private static final String DELETE_ACTIONS = "DELETE FROM item_actions WHERE item_id = ?";
+    private static final String INSERT_ACTION = "INSERT INTO item_actions (item_id, timestamp, action, player) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_ALL = "SELECT id, fingerprint_high, fingerprint_low, timestamp, creator, item_type "
+            + "FROM tracked_items";
+    private static final String SELECT_ITEM = SELECT_ALL + " WHERE id = ?";
+    private static final String COUNT_ITEMS = "SELECT COUNT(*) FROM tracked_items";
+    private static final String SELECT_ACTIONS = "SELECT timestamp, action, player FROM item_actions "
+            + "WHERE item_id = ? ORDER BY timestamp DESC, rowid DESC LIMIT ?";
+
+    private final Path file;
+    private final JdbcWriteQueue writes;
+    private final AtomicInteger size = new AtomicInteger();
+    private Connection writeConnection;
+    private Connection readConnection;
+    private PreparedStatement selectItem;
+    private PreparedStatement selectActions;
+    private Statements statements;
+
+    SqliteItemStore(Path file, int batchSize, int queueCapacity, int concurrency) {
+        this.file = file;
+        this.writes = new JdbcWriteQueue("AntiDupe-SQLite", batchSize, queueCapacity, concurrency,
+                this::selectItem, this::write);
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            Files.createDirectories(file.getParent());
+            this.writeConnection = DriverManager.getConnection("jdbc:sqlite:" + file);
+            try (Statement statement = writeConnection.createStatement()) {
+                for (final String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            writeConnection.setAutoCommit(false);
+            this.statements = new Statements(writeConnection);
+
+            this.readConnection = DriverManager.getConnection("jdbc:sqlite:" + file);
+            this.selectItem = readConnection.prepareStatement(SELECT_ITEM);
+            this.selectActions = readConnection.prepareStatement(SELECT_ACTIONS);
+            try (Statement statement = readConnection.createStatement();
+                 ResultSet result = statement.executeQuery(COUNT_ITEMS)) {
+                size.set(result.next() ? result.getInt(1) : 0);
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("SQLite JDBC driver is not available", e);
+        } catch (SQLException e) {
+            throw new IOException("Failed to open " + file, e);
+        }
+
+        writes.start();
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem get(long id) {
+        return writes.current(id);
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem put(ItemRegistry.TrackedItem item) {
+        final ItemRegistry.TrackedItem previous = writes.put(item);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem remove(long id) {
+        final ItemRegistry.TrackedItem removed = writes.remove(id);
+        if (removed != null) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void forEach(Consumer<ItemRegistry.TrackedItem> action) {
+        writes.awaitCommitted();
+        synchronized (readConnection) {
+            try (Statement statement = readConnection.createStatement();
+                 ResultSet result = statement.executeQuery(SELECT_ALL)) {
+                while (result.next()) {
+                    action.accept(read(result));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to scan tracked items", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public boolean storesHistory() {
+        return true;
+    }
+
+    @Override
+    public void appendAction(long id, long timestamp, ItemActionType action, int playerId) {
+        writes.action(id, timestamp, action, playerId);
+    }
+
+    @Override
+    public List<ItemHistory.Entry> latestActions(long id, int limit) {
+        writes.awaitCommitted();
+        synchronized (readConnection) {
+            try {
+                selectActions.setLong(1, id);
+                selectActions.setInt(2, limit);
+                final List<ItemHistory.Entry> entries = new ArrayList<>();
+                try (ResultSet result = selectActions.executeQuery()) {
+                    while (result.next()) {
+                        entries.add(new ItemHistory.Entry(result.getLong(1),
+                                ItemActionType.fromOrdinal(result.getInt(2)), result.getInt(3)));
+                    }
+                }
+                return entries;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to read history of " + id, e);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writes.awaitCommitted();
+        final SQLException error = writes.takeFailure();
+        if (error != null) {
+            throw new IOException("SQLite writer failed", error);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writeConnection == null) return;
+
+        writes.stop();
+        try {
+            statements.close();
+            selectItem.close();
+            selectActions.close();
+            readConnection.close();
+            writeConnection.close();
+            writeConnection = null;
+        } catch (SQLException e) {
+            throw new IOException("Failed to close " + file, e);
+        }
+    }
+
+    private ItemRegistry.TrackedItem selectItem(long id) throws SQLException {
+        synchronized (readConnection) {
+            selectItem.setLong(1, id);
+            try (ResultSet result = selectItem.executeQuery()) {
+                return result.next() ? read(result) : null;
+            }
+        }
+    }
+
+    private void write(List<JdbcWriteQueue.Write> batch) throws SQLException {
+        try {
+            for (final JdbcWriteQueue.Write write : batch) {
+                statements.add(write);
+            }
+            statements.execute();
+            writeConnection.commit();
+        } catch (SQLException e) {
+            statements.clear();
+            writeConnection.rollback();
+            throw e;
+        }
+    }
+
+    private static ItemRegistry.TrackedItem read(ResultSet result) throws SQLException {
+        return new ItemRegistry.TrackedItem(result.getLong(1), result.getLong(2), result.getLong(3),
+                result.getLong(4), result.getInt(5), result.getInt(6));
+    }
+
+    private static final class Statements {
+
+        private final PreparedStatement upsertItem;
+        private final PreparedStatement deleteItem;
+        private final PreparedStatement deleteActions;
+        private final PreparedStatement insertAction;
+        private Class<?> batched;
+
+        Statements(Connection connection) throws SQLException {
+            this.upsertItem = connection.prepareStatement(UPSERT_ITEM);
+            this.deleteItem = connection.prepareStatement(DELETE_ITEM);
+            this.deleteActions = connection.prepareStatement(DELETE_ACTIONS);
+            this.insertAction = connection.prepareStatement(INSERT_ACTION);
+        }
+
+        void add(JdbcWriteQueue.Write write) throws SQLException {
+            if (write.getClass() != batched) {
+                execute();
+                batched = write.getClass();
+            }
+
+            switch (write) {
+                case JdbcWriteQueue.PutItem put -> {
+                    final ItemRegistry.TrackedItem item = put.item();
+                    upsertItem.setLong(1, item.id());
+                    upsertItem.setLong(2, item.fingerprintHigh());
+                    upsertItem.setLong(3, item.fingerprintLow());
+                    upsertItem.setLong(4, item.timestamp());
+                    upsertItem.setInt(5, item.creatorId());
+                    upsertItem.setInt(6, item.typeId());
+                    upsertItem.addBatch();
+                }
+                case JdbcWriteQueue.RemoveItem remove -> {
+                    deleteItem.setLong(1, remove.id());
+                    deleteItem.addBatch();
+                    deleteActions.setLong(1, remove.id());
+                    deleteActions.addBatch();
+                }
+                case JdbcWriteQueue.AppendAction append -> {
+                    insertAction.setLong(1, append.id());
+                    insertAction.setLong(2, append.timestamp());
+                    insertAction.setInt(3, append.action().ordinal());
+                    insertAction.setInt(4, append.playerId());
+                    insertAction.addBatch();
+                }
+                case JdbcWriteQueue.Stop stop -> {
+                }
+            }
+        }
+
+        void execute() throws SQLException {
+            if (batched == JdbcWriteQueue.PutItem.class) {
+                upsertItem.executeBatch();
+            } else if (batched == JdbcWriteQueue.RemoveItem.class) {
+                deleteItem.executeBatch();
+                deleteActions.executeBatch();
+            } else if (batched == JdbcWriteQueue.AppendAction.class) {
+                insertAction.executeBatch();
+            }
+            batched = null;
+        }
+
+        void clear() throws SQLException {
+            upsertItem.clearBatch();
+            deleteItem.clearBatch();
+            deleteActions.clearBatch();
+            insertAction.clearBatch();
+            batched = null;
+        }
+
+        void close() throws SQLException {
+            upsertItem.close();
+            deleteItem.close();
+            deleteActions.close();
+            insertAction.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package dev.aari.antidupe.data;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+final class TieredItemStore implements ItemStore {
+
+    private static final int LOCKS_PER_THREAD = 16;
+
+    private final ClockCache<ItemRegistry.TrackedItem> hot;
+    private final ItemStore cold;
+    private final Object[] locks;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    TieredItemStore(ItemStore cold, int hotCapacity, int concurrency) {
+        this.cold = cold;
+        this.hot = new ClockCache<>(hotCapacity, concurrency);
+        this.locks = new Object[Integer.highestOneBit(Math.max(2, concurrency) * LOCKS_PER_THREAD - 1)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        cold.open();
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem get(long id) {
+        final ItemRegistry.TrackedItem cached = hot.get(id);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        synchronized (lock(id)) { // a write to the same id cannot slip between the cold read and the promotion
+            final ItemRegistry.TrackedItem promoted = hot.get(id);
+            if (promoted != null) return promoted;
+
+            final ItemRegistry.TrackedItem stored = cold.get(id);
+            if (stored != null) {
+                hot.put(id, stored);
+            }
+            return stored;
+        }
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem put(ItemRegistry.TrackedItem item) {
+        synchronized (lock(item.id())) {
+            final ItemRegistry.TrackedItem previous = cold.put(item);
+            hot.put(item.id(), item);
+            return previous;
+        }
+    }
+
+    @Override
+    public ItemRegistry.TrackedItem remove(long id) {
+        synchronized (lock(id)) {
+            hot.remove(id);
+            return cold.remove(id);
+        }
+    }
+
+    @Override
+    public int size() {
+        return cold.size();
+    }
+
+    @Override
+    public void forEach(Consumer<ItemRegistry.TrackedItem> action) {
+        cold.forEach(action);
+    }
+
+    @Override
+    public boolean isDurable() {
+        return cold.isDurable();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        cold.flush();
+    }
+
+    @Override
+    public boolean isShared() {
+        return cold.isShared();
+    }
+
+    @Override
+    public List<ItemRegistry.TrackedItem> findByFingerprint(long high, long low) {
+        return cold.findByFingerprint(high, low);
+    }
+
+    @Override
+    public boolean storesHistory() {
+        return cold.storesHistory();
+    }
+
+    @Override
+    public void appendAction(long id, long timestamp, ItemActionType action, int playerId) {
+        cold.appendAction(id, timestamp, action, playerId);
+    }
+
+    @Override
+    public List<ItemHistory.Entry> latestActions(long id, int limit) {
+        return cold.latestActions(id, limit);
+    }
+
+    @Override
+    public ItemRegistry.TierStats tierStats() {
+        return new ItemRegistry.TierStats(hits.sum(), misses.sum(), hot.size(), hot.capacity(), cold.size());
+    }
+
+    private Object lock(long id) {
+        final long hash = id * 0x9E3779B97F4A7C15L;
+        return locks[(int) (hash >>> 32) & (locks.length - 1)];
+    }
+
+    @Override
+    public void close() throws IOException {
+        hot.clear();
+        cold.close();
+    }
+}
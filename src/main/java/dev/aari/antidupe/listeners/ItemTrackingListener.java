@@ -3,7 +3,7 @@ package dev.aari.antidupe.listeners;
 import dev.aari.antidupe.config.ConfigManager;
 import dev.aari.antidupe.data.ItemRegistry;
 import dev.aari.antidupe.managers.DupeDebugManager;
-import dev.aari.antidupe.util.ItemIdentifier;
+import dev.aari.antidupe.util.ItemSnapshot;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -18,7 +18,6 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 
 public final class ItemTrackingListener implements Listener {
@@ -44,15 +43,14 @@ public final class ItemTrackingListener implements Listener {
         final Player player = event.getPlayer();
         if (!player.hasPermission("antidupe.admin")) return;
 
-        CompletableFuture.runAsync(() -> {
-            int count = 0;
-            for (final ItemStack item : player.getInventory().getContents()) {
-                if (isValidItem(item) && ItemIdentifier.getItemId(item) == null) {
-                    itemRegistry.registerItem(item, "LOGIN_SCAN", player.getName());
-                    if (++count >= 10) break; // Limit login scanning
-                }
+        for (final ItemStack item : player.getInventory().getContents()) {
+            if (!isValidItem(item)) continue;
+
+            final ItemSnapshot snapshot = ItemSnapshot.capture(item);
+            if (snapshot.itemId() == null) {
+                itemRegistry.submit(item, snapshot, "LOGIN_SCAN", player.getName());
             }
-        });
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -65,7 +63,7 @@ public final class ItemTrackingListener implements Listener {
             event.getBlock().getDrops(tool).stream()
                     .filter(this::isValidItem)
                     .limit(3) // Limit drops processed
-                    .forEach(drop -> trackItemAsync(drop, "MINED", player.getName()));
+                    .forEach(drop -> trackItem(drop, "MINED", player.getName()));
         }
     }
 
@@ -76,7 +74,7 @@ public final class ItemTrackingListener implements Listener {
 
         final ItemStack result = event.getCurrentItem();
         if (isValidItem(result)) {
-            trackItemAsync(result, "CRAFTED", player.getName());
+            trackItem(result, "CRAFTED", player.getName());
         }
     }
 
@@ -86,7 +84,7 @@ public final class ItemTrackingListener implements Listener {
         if (!shouldTrack(player)) return;
 
         final ItemStack result = new ItemStack(event.getItemType(), event.getItemAmount());
-        trackItemAsync(result, "SMELTED", player.getName());
+        trackItem(result, "SMELTED", player.getName());
     }
 
     @EventHandler
@@ -112,10 +110,10 @@ public final class ItemTrackingListener implements Listener {
         return item != null && !item.getType().isAir() && item.getAmount() > 0;
     }
 
-    private void trackItemAsync(ItemStack item, String action, String playerName) {
+    private void trackItem(ItemStack item, String action, String playerName) {
         if (!isValidItem(item)) return;
 
-        CompletableFuture.runAsync(() -> itemRegistry.registerItem(item, action, playerName));
+        itemRegistry.submit(item, action, playerName);
     }
 
     private void startCleanupTask() {
@@ -129,14 +129,41 @@ public final class DupeDebugManager implements Listener {
         }
     }
 
+    public void scanInventory(Player player) {
+        if (!player.hasPermission("antidupe.admin")) return;
+
+        List<ItemStack> items = new ArrayList<>();
+        for (ItemStack item : player.getInventory().getContents()) {
+            if (item != null && !item.getType().isAir()) {
+                items.add(item);
+            }
+        }
+
+        addDebugLore(player, items);
+    }
+
     private void addDebugLore(Player player, ItemStack item) {
         if (!player.hasPermission("antidupe.admin")) return;
 
         Long itemId = ItemIdentifier.getItemId(item);
-        if (itemId == null) {
-            itemId = plugin.getItemRegistry().registerItem(item, "DEBUG_SCAN", player.getName());
+        if (itemId != null) {
+            addDebugLore(item, itemId);
+        } else {
+            addDebugLore(player, List.of(item));
         }
+    }
+
+    private void addDebugLore(Player player, List<ItemStack> items) {
+        plugin.getItemRegistry().registerItemsAsync(items, "DEBUG_SCAN", player.getName()).thenAccept(ids -> {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] >= 0L) {
+                    addDebugLore(items.get(i), ids[i]);
+                }
+            }
+        });
+    }
 
+    private void addDebugLore(ItemStack item, long itemId) {
         ItemMeta meta = item.getItemMeta();
         if (meta == null) return;
 
@@ -0,0 +1,80 @@
+package dev.aari.antidupe.redis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+final class NearCache<K, V> {
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    NearCache(int capacity, long ttlMillis) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlNanos = Math.max(1L, ttlMillis) * 1_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > NearCache.this.capacity;
+            }
+        };
+    }
+
+    V get(K key) {
+        final long now = System.nanoTime();
+        synchronized (entries) {
+            final Entry<V> entry = entries.get(key);
+            if (entry != null && now - entry.storedAt < ttlNanos) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    void put(K key, V value, long readGeneration) {
+        synchronized (entries) {
+            if (generation.get() != readGeneration) return; // invalidated while the value was being read
+
+            entries.put(key, new Entry<>(value, System.nanoTime()));
+        }
+    }
+
+    void invalidate(K key) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    RedisManager.CacheStats stats() {
+        final int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new RedisManager.CacheStats(size, capacity, hits.sum(), misses.sum());
+    }
+
+    private record Entry<V>(V value, long storedAt) {
+    }
+}
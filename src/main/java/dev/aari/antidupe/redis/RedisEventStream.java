@@ -0,0 +1,189 @@
+package dev.aari.antidupe.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XReadGroupParams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+final class RedisEventStream {
+
+    static final byte[] EVENTS_KEY = "antidupe:events".getBytes(StandardCharsets.UTF_8);
+    static final byte[] PAYLOAD_FIELD = {'e'};
+
+    private static final byte[] NEW_ENTRIES = {'>'};
+    private static final byte[] GROUP_START = {'0'};
+    private static final long RETRY_MILLIS = 1000L;
+    private static final long PAUSE_MILLIS = 100L;
+
+    private final JedisPool pool;
+    private final int batchSize;
+    private final int blockMillis;
+    private final BooleanSupplier accepting;
+    private final EventHandler handler;
+    private final LongAdder consumed = new LongAdder();
+    private volatile byte[] group;
+    private volatile long lastEventMillis;
+    private volatile boolean running;
+    private Thread reader;
+
+    RedisEventStream(JedisPool pool, int batchSize, int blockMillis, BooleanSupplier accepting, EventHandler handler) {
+        this.pool = pool;
+        this.batchSize = Math.max(1, batchSize);
+        this.blockMillis = Math.max(1, blockMillis);
+        this.accepting = accepting;
+        this.handler = handler;
+    }
+
+    void start(String consumerGroup) {
+        this.group = consumerGroup.getBytes(StandardCharsets.UTF_8);
+        this.reader = new Thread(this::run, "AntiDupe-Stream");
+        reader.setDaemon(true);
+        running = true;
+        reader.start();
+    }
+
+    long consumed() {
+        return consumed.sum();
+    }
+
+    long lastEventMillis() {
+        return lastEventMillis;
+    }
+
+    void stop() {
+        final Thread current = reader;
+        if (current == null) return;
+
+        running = false;
+        try {
+            current.join(blockMillis + RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        reader = null;
+    }
+
+    private void run() {
+        while (running) {
+            if (!pause()) return;
+
+            try (Jedis jedis = pool.getResource()) {
+                // A new group starts at the head of the stream, so its first pass may hold events this
+                // server already applied under an earlier group name
+                boolean catchingUp = createGroup(jedis);
+                byte[] cursor = GROUP_START; // entries delivered before a crash or restart but never acknowledged
+                while (running) {
+                    if (!pause()) return;
+
+                    final boolean pending = cursor != NEW_ENTRIES;
+                    final List<Event> events = read(jedis, cursor, pending);
+                    if (events.isEmpty()) {
+                        if (!pending) {
+                            catchingUp = false;
+                        }
+                        cursor = NEW_ENTRIES;
+                        continue;
+                    }
+
+                    handler.handle(events, pending || catchingUp);
+                    final byte[][] ids = new byte[events.size()][];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = events.get(i).id();
+                    }
+                    jedis.xack(EVENTS_KEY, group, ids);
+                    consumed.add(ids.length);
+                    lastEventMillis = events.getLast().millis();
+                    if (pending) {
+                        cursor = ids[ids.length - 1];
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Redis event stream read failed: " + e.getMessage());
+                sleep(RETRY_MILLIS);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Event> read(Jedis jedis, byte[] cursor, boolean pending) {
+        final XReadGroupParams params = XReadGroupParams.xReadGroupParams().count(batchSize);
+        if (!pending) {
+            params.block(blockMillis); // pending entries are already ours, never wait for them
+        }
+        return parse(jedis.xreadGroup(group, group, params, Map.entry(EVENTS_KEY, cursor)));
+    }
+
+    private boolean pause() {
+        while (running && !accepting.getAsBoolean()) {
+            sleep(PAUSE_MILLIS); // leave entries in the stream until the registry can take them
+        }
+        return running;
+    }
+
+    private boolean createGroup(Jedis jedis) {
+        try {
+            jedis.xgroupCreate(EVENTS_KEY, group, GROUP_START, true);
+            return true;
+        } catch (JedisDataException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("BUSYGROUP")) throw e;
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Event> parse(List<Object> reply) {
+        if (reply == null || reply.isEmpty()) return List.of();
+
+        final List<Object> entries = (List<Object>) ((List<Object>) reply.getFirst()).get(1);
+        final List<Event> events = new ArrayList<>(entries.size());
+        for (final Object raw : entries) {
+            final List<Object> entry = (List<Object>) raw;
+            final List<Object> fields = (List<Object>) entry.get(1);
+            byte[] payload = null;
+            if (fields != null) { // null once the entry has been trimmed away
+                for (int i = 0; i + 1 < fields.size(); i += 2) {
+                    if (Arrays.equals(PAYLOAD_FIELD, (byte[]) fields.get(i))) {
+                        payload = (byte[]) fields.get(i + 1);
+                    }
+                }
+            }
+            events.add(new Event((byte[]) entry.getFirst(), payload));
+        }
+        return events;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    interface EventHandler {
+        // replay is set for events that may have been applied before: redelivered pending entries
+        // and the catch-up pass of a newly created group
+        void handle(List<Event> events, boolean replay);
+    }
+
+    record Event(byte[] id, byte[] payload) {
+
+        long millis() {
+            long millis = 0L;
+            for (final byte b : id) {
+                if (b == '-') break;
+                millis = millis * 10 + (b - '0');
+            }
+            return millis;
+        }
+    }
+}
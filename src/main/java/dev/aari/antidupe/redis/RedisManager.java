@@ -1,30 +1,238 @@
 package dev.aari.antidupe.redis;
 
+import dev.aari.antidupe.AntiDupe;
 import dev.aari.antidupe.config.ConfigManager;
+import dev.aari.antidupe.data.ItemActionType;
 import dev.aari.antidupe.data.ItemRegistry;
+import dev.aari.antidupe.util.Fingerprint;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.bukkit.scheduler.BukkitTask;
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
-import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.params.XAddParams;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class RedisManager {
 
+    private static final byte[] ITEMS_KEY = "antidupe:items".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] COMMANDS_CHANNEL = "antidupe:commands".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FINGERPRINT_KEY_PREFIX = "antidupe:fingerprints:".getBytes(StandardCharsets.UTF_8);
+    private static final String CREATOR_IDS_KEY = "antidupe:creators:ids";
+    private static final String CREATOR_NAMES_KEY = "antidupe:creators:names";
+    private static final String CREATOR_SEQUENCE_KEY = "antidupe:creators:next";
+    private static final String ASSIGN_CREATOR_SCRIPT = """
+            local id = redis.call('HGET', KEYS[1], ARGV[1])
+            if id then return tonumber(id) end
+            id = redis.call('INCR', KEYS[3])
+            redis.call('HSET', KEYS[1], ARGV[1], id)
+            redis.call('HSET', KEYS[2], id, ARGV[1])
+            return id
+            """;
+    private static final byte[] CHECK_AND_ADD_SCRIPT = """
+            redis.call('SADD', KEYS[1], ARGV[1])
+            local ttl = tonumber(ARGV[2])
+            if ttl > 0 then redis.call('EXPIRE', KEYS[1], ttl) end
+            local count = redis.call('SCARD', KEYS[1])
+            local result = {count - 1}
+            if count <= 1 or count > tonumber(ARGV[3]) then return result end
+            for _, member in ipairs(redis.call('SMEMBERS', KEYS[1])) do
+                if member ~= ARGV[1] then result[#result + 1] = member end
+            end
+            return result
+            """.getBytes(StandardCharsets.UTF_8);
+    private static final String NODE_LEASE_PREFIX = "antidupe:nodes:";
+    private static final String NODE_SEQUENCE_KEY = "antidupe:nodes:next";
+    private static final String RENEW_LEASE_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end
+            return 0
+            """;
+    private static final String RELEASE_LEASE_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end
+            return 0
+            """;
+    private static final int MAX_RETURNED_MEMBERS = 16;
+    private static final long ALERT_REPLAY_MILLIS = 60_000L; // older alerts are only merged, not shown
+
     private final JedisPool jedisPool;
+    private final AntiDupe plugin;
     private final ConfigManager config;
     private final ItemRegistry itemRegistry;
-    private final DupeAlertSubscriber alertSubscriber;
+    private final CommandSubscriber commandSubscriber;
+    private final RedisWriteQueue writes;
+    private final RedisEventStream events;
+    private final LongAdder mergedItems = new LongAdder();
+    private final ConcurrentHashMap<Integer, Integer> networkCreatorIds = new ConcurrentHashMap<>();
+    private final NearCache<Fingerprint, NetworkDuplicates> fingerprintCache;
+    private final NearCache<Integer, String> creatorNameCache;
+    private final String leaseToken = UUID.randomUUID().toString();
+    private final long nodeLeaseMillis;
+    private volatile byte[] checkAndAddSha;
+    private volatile String serverName;
+    private volatile int leasedNode = -1;
+    private BukkitTask leaseRenewal;
 
-    public RedisManager(ConfigManager config, ItemRegistry itemRegistry) {
-        this.config = config;
-        this.itemRegistry = itemRegistry;
+    public RedisManager(AntiDupe plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        this.itemRegistry = plugin.getItemRegistry();
         this.jedisPool = createJedisPool();
-        this.alertSubscriber = new DupeAlertSubscriber(itemRegistry);
+        this.fingerprintCache = new NearCache<>(config.getInt("redis.near-cache.max-entries", 10000),
+                config.getLong("redis.near-cache.ttl-ms", 30000L));
+        this.creatorNameCache = new NearCache<>(config.getInt("redis.near-cache.max-entries", 10000),
+                config.getLong("redis.near-cache.ttl-ms", 30000L));
+        this.nodeLeaseMillis = Math.max(1000L, config.getLong("redis.node-lease-ms", 30000L));
+        this.commandSubscriber = new CommandSubscriber(fingerprintCache);
+        this.writes = new RedisWriteQueue(config.getInt("redis.write-behind.batch-size", 256),
+                config.getLong("redis.write-behind.max-delay-ms", 50L),
+                config.getInt("redis.write-behind.queue-size", 16384), this::writeBatch);
+        final long maxPending = config.getLong("redis.stream.max-pending-mutations", 65536L);
+        this.events = new RedisEventStream(jedisPool, config.getInt("redis.stream.batch-size", 512),
+                Math.min(config.getInt("redis.stream.block-ms", 500), config.getInt("redis.timeout", 2000) / 2),
+                () -> itemRegistry.getLoadState() == ItemRegistry.LoadState.READY
+                        && itemRegistry.getFlushStats().pendingMutations() < maxPending,
+                this::handleEvents);
+
+        if (isEnabled()) {
+            writes.start();
+            subscribeToCommands();
+        }
+    }
 
+    public void startEventStream() {
         if (isEnabled()) {
-            subscribeToAlerts();
+            events.start(getServerName());
+        }
+    }
+
+    public void stopEventStream() {
+        events.stop();
+    }
+
+    // Hands out a node id no live server holds: the preferred one when it is free, otherwise the
+    // next free slot from a shared counter. The lease expires unless renewed, so a crashed server's
+    // id becomes available again. Returns -1 when Redis cannot be reached.
+    public int leaseNodeId(int preferred, int maxNode) {
+        if (!isEnabled()) return -1;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (preferred >= 0 && preferred <= maxNode && acquireLease(jedis, preferred)) return preferred;
+
+            for (int attempt = 0; attempt <= maxNode; attempt++) {
+                final int candidate = (int) Math.floorMod(jedis.incr(NODE_SEQUENCE_KEY), maxNode + 1L);
+                if (acquireLease(jedis, candidate)) return candidate;
+            }
+            System.err.println("Every node id is leased by another server");
+        } catch (Exception e) {
+            System.err.println("Redis node id lease failed: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    public boolean claimNodeId(int node) {
+        if (!isEnabled()) return false;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            return acquireLease(jedis, node);
+        } catch (Exception e) {
+            System.err.println("Redis node id lease failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean acquireLease(Jedis jedis, int node) {
+        if (!"OK".equals(jedis.set(NODE_LEASE_PREFIX + node, leaseToken, SetParams.setParams().nx().px(nodeLeaseMillis)))) {
+            return false;
+        }
+
+        leasedNode = node;
+        if (leaseRenewal == null) {
+            final long period = Math.max(1L, nodeLeaseMillis / 3 / 50);
+            leaseRenewal = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::renewLease,
+                    period, period);
+        }
+        return true;
+    }
+
+    private void renewLease() {
+        final int node = leasedNode;
+        if (node < 0) return;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            final Object renewed = jedis.eval(RENEW_LEASE_SCRIPT, List.of(NODE_LEASE_PREFIX + node),
+                    List.of(leaseToken, String.valueOf(nodeLeaseMillis)));
+            if (!Long.valueOf(1L).equals(renewed) && !acquireLease(jedis, node)) {
+                plugin.getSLF4JLogger().error("Node id {} is now leased by another server, item ids may collide until "
+                        + "storage.node-id is set", node);
+            }
+        } catch (Exception e) {
+            System.err.println("Redis node id lease renewal failed: " + e.getMessage());
+        }
+    }
+
+    private void releaseLease() {
+        final int node = leasedNode;
+        if (leaseRenewal != null) {
+            leaseRenewal.cancel();
+            leaseRenewal = null;
+        }
+        if (node < 0) return;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.eval(RELEASE_LEASE_SCRIPT, List.of(NODE_LEASE_PREFIX + node), List.of(leaseToken));
+        } catch (Exception e) {
+            System.err.println("Redis node id release failed: " + e.getMessage());
+        }
+        leasedNode = -1;
+    }
+
+    // Also names this server's consumer group, so it must survive restarts: a leased node id may
+    // change, and a new group would replay the whole stream and strand the old group's pending entries.
+    public String getServerName() {
+        String name = serverName;
+        if (name == null) {
+            name = config.getString("redis.server-name", "");
+            if (name.isBlank()) {
+                name = persistedServerName();
+            }
+            serverName = name;
+        }
+        return name;
+    }
+
+    private String persistedServerName() {
+        final Path file = plugin.getDataFolder().toPath().resolve("server-name");
+        try {
+            if (Files.exists(file)) {
+                final String stored = Files.readString(file, StandardCharsets.UTF_8).trim();
+                if (!stored.isEmpty()) return stored;
+            }
+            final String generated = "server-" + UUID.randomUUID();
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, generated, StandardCharsets.UTF_8);
+            return generated;
+        } catch (IOException e) {
+            System.err.println("Failed to persist the Redis server name, set redis.server-name: " + e.getMessage());
+            return "node-" + itemRegistry.getNodeId();
         }
     }
 
@@ -41,8 +249,9 @@ public final class RedisManager {
         poolConfig.setMaxTotal(config.getInt("redis.pool.max-total", 8));
         poolConfig.setMaxIdle(config.getInt("redis.pool.max-idle", 4));
         poolConfig.setMinIdle(config.getInt("redis.pool.min-idle", 1));
-        poolConfig.setTestOnBorrow(true);
-        poolConfig.setTestOnReturn(true);
+        poolConfig.setTestOnBorrow(false);
+        poolConfig.setTestOnReturn(false);
+        poolConfig.setTestWhileIdle(true);
 
         if (password.isEmpty()) {
             return new JedisPool(poolConfig, host, port, timeout, null, database);
@@ -55,68 +264,324 @@ public final class RedisManager {
         return config.getBoolean("redis.enabled", false);
     }
 
-    public CompletableFuture<Void> publishDupeAlert(String serverName, String playerName, long itemId, int duplicateCount) {
+    public CompletableFuture<Void> publishDupeAlert(String playerName, long itemId, int duplicateCount) {
         if (!isEnabled()) return CompletableFuture.completedFuture(null);
 
-        return CompletableFuture.runAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                String alertData = String.format("%s|%s|%d|%d", serverName, playerName, itemId, duplicateCount);
-                jedis.publish("antidupe:alerts", alertData);
-            } catch (Exception e) {
-                // Log error but don't fail
-                System.err.println("Redis publish failed: " + e.getMessage());
-            }
-        });
+        return writes.appendEvent(RedisPayloads.encodeAlert(getServerName(), playerName, itemId, duplicateCount));
     }
 
-    public CompletableFuture<Void> syncItemData(long itemId, String fingerprint, String creator, long timestamp) {
+    public CompletableFuture<Void> publishRemoval(ItemRegistry.TrackedItem item) {
         if (!isEnabled()) return CompletableFuture.completedFuture(null);
 
-        return CompletableFuture.runAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                String itemData = String.format("%s|%s|%d", fingerprint, creator, timestamp);
-                jedis.hset("antidupe:items", String.valueOf(itemId), itemData);
-                jedis.expire("antidupe:items", config.getInt("redis.item-expire", 86400));
-            } catch (Exception e) {
-                System.err.println("Redis item sync failed: " + e.getMessage());
-            }
-        });
+        return writes.removeItem(item);
+    }
+
+    public CompletableFuture<Void> publishAction(long itemId, long timestamp, ItemActionType action, String player) {
+        if (!isEnabled()) return CompletableFuture.completedFuture(null);
+
+        return writes.appendEvent(RedisPayloads.encodeAction(getServerName(), itemId, timestamp, action, player));
+    }
+
+    public CompletableFuture<Void> syncItemData(ItemRegistry.TrackedItem item) {
+        if (!isEnabled()) return CompletableFuture.completedFuture(null);
+
+        return writes.syncItem(item);
     }
 
-    public CompletableFuture<List<String>> getNetworkDuplicates(String fingerprint) {
-        if (!isEnabled()) return CompletableFuture.completedFuture(List.of());
+    public CompletableFuture<NetworkDuplicates> indexFingerprint(ItemRegistry.TrackedItem item) {
+        if (!isEnabled()) return CompletableFuture.completedFuture(NetworkDuplicates.NONE);
+
+        return writes.indexFingerprint(item).thenApply(RedisManager::parseDuplicates);
+    }
+
+    // Counts every item indexed under the fingerprint, including the one looked up, and samples at
+    // most MAX_RETURNED_MEMBERS of their ids
+    public CompletableFuture<NetworkDuplicates> getNetworkDuplicates(Fingerprint fingerprint) {
+        if (!isEnabled()) return CompletableFuture.completedFuture(NetworkDuplicates.NONE);
+
+        final boolean cacheable = commandSubscriber.isSubscribed();
+        if (cacheable) {
+            final NetworkDuplicates cached = fingerprintCache.get(fingerprint);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
 
         return CompletableFuture.supplyAsync(() -> {
+            final long generation = fingerprintCache.generation();
             try (Jedis jedis = jedisPool.getResource()) {
-                return jedis.hvals("antidupe:fingerprints:" + fingerprint);
+                final byte[] key = fingerprintKey(fingerprint);
+                final Pipeline pipeline = jedis.pipelined();
+                final Response<Long> count = pipeline.scard(key); // sets grow without bound, never fetch them whole
+                final Response<List<byte[]>> members = pipeline.srandmember(key, MAX_RETURNED_MEMBERS);
+                pipeline.sync();
+
+                final List<byte[]> sampled = members.get();
+                final long[] sample = new long[sampled.size()];
+                for (int i = 0; i < sample.length; i++) {
+                    sample[i] = Long.parseLong(new String(sampled.get(i), StandardCharsets.UTF_8));
+                }
+
+                final NetworkDuplicates duplicates = new NetworkDuplicates(count.get().intValue(), sample);
+                if (cacheable) {
+                    fingerprintCache.put(fingerprint, duplicates, generation);
+                }
+                return duplicates;
             } catch (Exception e) {
                 System.err.println("Redis duplicate lookup failed: " + e.getMessage());
-                return List.of();
+                return NetworkDuplicates.NONE;
             }
         });
     }
 
+    public String getNetworkCreator(int networkCreatorId) {
+        if (!isEnabled()) return null;
+
+        final String cached = creatorNameCache.get(networkCreatorId);
+        if (cached != null) return cached;
+
+        final long generation = creatorNameCache.generation();
+        try (Jedis jedis = jedisPool.getResource()) {
+            final String name = jedis.hget(CREATOR_NAMES_KEY, String.valueOf(networkCreatorId));
+            if (name != null) {
+                creatorNameCache.put(networkCreatorId, name, generation); // ids are never reassigned
+            }
+            return name;
+        } catch (Exception e) {
+            System.err.println("Redis creator lookup failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public CacheStats getNearCacheStats() {
+        return fingerprintCache.stats();
+    }
+
+    public StreamStats getStreamStats() {
+        return new StreamStats(events.consumed(), mergedItems.sum(), events.lastEventMillis());
+    }
+
     public CompletableFuture<Void> publishItemHistory(long itemId, String action, String player, String server) {
         if (!isEnabled()) return CompletableFuture.completedFuture(null);
 
-        return CompletableFuture.runAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                String historyData = String.format("%d|%s|%s|%s|%d", itemId, action, player, server, System.currentTimeMillis());
-                jedis.lpush("antidupe:history:" + itemId, historyData);
-                jedis.ltrim("antidupe:history:" + itemId, 0, config.getInt("redis.max-history", 100));
-                jedis.expire("antidupe:history:" + itemId, config.getInt("redis.history-expire", 604800));
-            } catch (Exception e) {
-                System.err.println("Redis history sync failed: " + e.getMessage());
+        return writes.appendHistory(itemId,
+                RedisPayloads.encodeHistory(itemId, action, player, server, System.currentTimeMillis()));
+    }
+
+    private void writeBatch(List<RedisWriteQueue.Write> batch) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            boolean indexing = false;
+            for (final RedisWriteQueue.Write write : batch) {
+                if (write instanceof RedisWriteQueue.SyncItem sync) {
+                    networkCreatorId(jedis, sync.item().creatorId()); // resolve before pipelining
+                }
+                indexing |= write instanceof RedisWriteQueue.IndexFingerprint;
+            }
+            if (indexing && checkAndAddSha == null) {
+                checkAndAddSha = jedis.scriptLoad(CHECK_AND_ADD_SCRIPT);
+            }
+
+            final Pipeline pipeline = jedis.pipelined();
+            final Set<Long> historyItems = new HashSet<>();
+            final Set<Fingerprint> indexed = new HashSet<>();
+            final List<Response<Object>> replies = new ArrayList<>();
+            final List<byte[]> fingerprintArgs = fingerprintArgs();
+            final XAddParams eventParams = XAddParams.xAddParams()
+                    .maxLen(config.getLong("redis.stream.max-length", 100000L))
+                    .approximateTrimming();
+            boolean itemsWritten = false;
+            for (final RedisWriteQueue.Write write : batch) {
+                switch (write) {
+                    case RedisWriteQueue.SyncItem sync -> {
+                        final ItemRegistry.TrackedItem item = sync.item();
+                        pipeline.hset(ITEMS_KEY, String.valueOf(item.id()).getBytes(StandardCharsets.UTF_8),
+                                RedisPayloads.encodeItem(item.fingerprintHigh(), item.fingerprintLow(), item.timestamp(),
+                                        networkCreatorIds.get(item.creatorId())));
+                        itemsWritten = true;
+                    }
+                    case RedisWriteQueue.IndexFingerprint index -> {
+                        final ItemRegistry.TrackedItem item = index.item();
+                        replies.add(pipeline.evalsha(checkAndAddSha, List.of(fingerprintKey(item.fingerprint())),
+                                memberArgs(item.id(), fingerprintArgs)));
+                        indexed.add(item.fingerprint());
+                        pipeline.xadd(RedisEventStream.EVENTS_KEY, eventParams, Map.of(RedisEventStream.PAYLOAD_FIELD,
+                                RedisPayloads.encodeRegistration(getServerName(), item.id(), item.fingerprintHigh(),
+                                        item.fingerprintLow(), item.timestamp(), itemRegistry.getCreator(item),
+                                        itemRegistry.getItemTypes().nameOf(item.typeId()))));
+                    }
+                    case RedisWriteQueue.RemoveItem removal -> {
+                        final ItemRegistry.TrackedItem item = removal.item();
+                        final byte[] member = String.valueOf(item.id()).getBytes(StandardCharsets.UTF_8);
+                        pipeline.srem(fingerprintKey(item.fingerprint()), member);
+                        pipeline.hdel(ITEMS_KEY, member);
+                        indexed.add(item.fingerprint());
+                        pipeline.xadd(RedisEventStream.EVENTS_KEY, eventParams, Map.of(RedisEventStream.PAYLOAD_FIELD,
+                                RedisPayloads.encodeRemoval(getServerName(), item.id())));
+                    }
+                    case RedisWriteQueue.AppendHistory history -> {
+                        pipeline.lpush(historyKey(history.itemId()), history.entry());
+                        historyItems.add(history.itemId());
+                    }
+                    case RedisWriteQueue.AppendEvent event -> pipeline.xadd(RedisEventStream.EVENTS_KEY, eventParams,
+                            Map.of(RedisEventStream.PAYLOAD_FIELD, event.payload()));
+                    case RedisWriteQueue.Stop ignored -> {
+                    }
+                }
+            }
+
+            if (itemsWritten) {
+                pipeline.expire(ITEMS_KEY, config.getInt("redis.item-expire", 86400));
+            }
+            final int maxHistory = config.getInt("redis.max-history", 100);
+            final int historyExpire = config.getInt("redis.history-expire", 604800);
+            for (final long itemId : historyItems) {
+                final byte[] key = historyKey(itemId);
+                pipeline.ltrim(key, 0, maxHistory);
+                pipeline.expire(key, historyExpire);
+            }
+            if (!indexed.isEmpty()) {
+                pipeline.publish(COMMANDS_CHANNEL, RedisPayloads.encodeInvalidation(indexed));
+            }
+            pipeline.sync();
+            indexed.forEach(fingerprintCache::invalidate);
+
+            int reply = 0;
+            for (final RedisWriteQueue.Write write : batch) {
+                if (write instanceof RedisWriteQueue.IndexFingerprint index) {
+                    index.reply().complete(checkAndAddReply(jedis, index.item(), replies.get(reply++), fingerprintArgs));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> checkAndAddReply(Jedis jedis, ItemRegistry.TrackedItem item, Response<Object> reply,
+                                          List<byte[]> fingerprintArgs) {
+        try {
+            return (List<Object>) reply.get();
+        } catch (RuntimeException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT")) throw e;
+
+            checkAndAddSha = jedis.scriptLoad(CHECK_AND_ADD_SCRIPT); // server script cache was flushed
+            return (List<Object>) jedis.evalsha(checkAndAddSha, List.of(fingerprintKey(item.fingerprint())),
+                    memberArgs(item.id(), fingerprintArgs));
+        }
+    }
+
+    private List<byte[]> fingerprintArgs() {
+        return List.of(String.valueOf(config.getInt("redis.fingerprint-expire", config.getInt("redis.item-expire", 86400)))
+                        .getBytes(StandardCharsets.UTF_8),
+                String.valueOf(MAX_RETURNED_MEMBERS + 1).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<byte[]> memberArgs(long itemId, List<byte[]> fingerprintArgs) {
+        return List.of(String.valueOf(itemId).getBytes(StandardCharsets.UTF_8), fingerprintArgs.get(0), fingerprintArgs.get(1));
+    }
+
+    private static NetworkDuplicates parseDuplicates(List<Object> reply) {
+        final int count = ((Long) reply.getFirst()).intValue();
+        final long[] itemIds = new long[reply.size() - 1];
+        for (int i = 1; i < reply.size(); i++) {
+            itemIds[i - 1] = Long.parseLong(new String((byte[]) reply.get(i), StandardCharsets.UTF_8));
+        }
+        return new NetworkDuplicates(count, itemIds);
+    }
+
+    private int networkCreatorId(Jedis jedis, int creatorId) {
+        final Integer cached = networkCreatorIds.get(creatorId);
+        if (cached != null) return cached;
+
+        final String name = itemRegistry.getCreators().nameOf(creatorId);
+        final int networkId = ((Long) jedis.eval(ASSIGN_CREATOR_SCRIPT,
+                List.of(CREATOR_IDS_KEY, CREATOR_NAMES_KEY, CREATOR_SEQUENCE_KEY), List.of(name))).intValue();
+        networkCreatorIds.put(creatorId, networkId);
+        return networkId;
+    }
+
+    private void handleEvents(List<RedisEventStream.Event> batch, boolean replay) {
+        final String self = getServerName();
+        final List<ItemRegistry.RemoteItem> remote = new ArrayList<>(batch.size());
+        final List<ItemRegistry.RemoteAction> actions = new ArrayList<>();
+        final LongArrayList removals = new LongArrayList();
+        for (final RedisEventStream.Event event : batch) {
+            if (event.payload() == null) continue;
+
+            try {
+                switch (RedisPayloads.typeOf(event.payload())) {
+                    case RedisPayloads.REGISTER -> {
+                        final RedisPayloads.Registration registration = RedisPayloads.decodeRegistration(event.payload());
+                        if (!self.equals(registration.origin())) {
+                            remote.add(new ItemRegistry.RemoteItem(registration.itemId(), registration.fingerprintHigh(),
+                                    registration.fingerprintLow(), registration.timestamp(), registration.creator(),
+                                    registration.itemType()));
+                        }
+                    }
+                    case RedisPayloads.ACTION -> {
+                        final RedisPayloads.Action action = RedisPayloads.decodeAction(event.payload());
+                        if (!self.equals(action.origin())) {
+                            actions.add(new ItemRegistry.RemoteAction(action.itemId(), action.timestamp(), action.action(),
+                                    action.player()));
+                        }
+                    }
+                    case RedisPayloads.REMOVE -> {
+                        final RedisPayloads.Removal removal = RedisPayloads.decodeRemoval(event.payload());
+                        if (!self.equals(removal.origin())) {
+                            removals.add(removal.itemId());
+                        }
+                    }
+                    case RedisPayloads.ALERT -> {
+                        final RedisPayloads.Alert alert = RedisPayloads.decodeAlert(event.payload());
+                        if (!self.equals(alert.server())
+                                && System.currentTimeMillis() - event.millis() < ALERT_REPLAY_MILLIS) {
+                            broadcastNetworkAlert(alert);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping unreadable network event: " + e.getMessage());
+            }
+        }
+        // Ids are never reused, so registrations, then actions, then removals is the only order that matters
+        if (!remote.isEmpty()) {
+            mergedItems.add(itemRegistry.mergeRemote(remote));
+        }
+        if (!actions.isEmpty()) {
+            mergedItems.add(itemRegistry.mergeRemoteActions(actions, replay));
+        }
+        if (!removals.isEmpty()) {
+            mergedItems.add(itemRegistry.removeRemote(removals));
+        }
+    }
+
+    private void broadcastNetworkAlert(RedisPayloads.Alert alert) {
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (plugin.getDupeDebugManager() != null) {
+                plugin.getDupeDebugManager().broadcastDupeAlert(alert.player() + " @ " + alert.server(),
+                        alert.itemId(), alert.duplicateCount());
             }
         });
     }
 
-    private void subscribeToAlerts() {
+    private static byte[] fingerprintKey(Fingerprint fingerprint) {
+        return ByteBuffer.allocate(FINGERPRINT_KEY_PREFIX.length + Fingerprint.BYTES)
+                .put(FINGERPRINT_KEY_PREFIX)
+                .putLong(fingerprint.high())
+                .putLong(fingerprint.low())
+                .array();
+    }
+
+    private static byte[] historyKey(long itemId) {
+        return ("antidupe:history:" + itemId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void subscribeToCommands() {
         CompletableFuture.runAsync(() -> {
             try (Jedis jedis = jedisPool.getResource()) {
-                jedis.subscribe(alertSubscriber, "antidupe:alerts", "antidupe:commands");
+                jedis.subscribe(commandSubscriber, COMMANDS_CHANNEL);
             } catch (Exception e) {
                 System.err.println("Redis subscription failed: " + e.getMessage());
+            } finally {
+                fingerprintCache.clear(); // invalidations are no longer received
             }
         });
     }
@@ -132,48 +597,56 @@ public final class RedisManager {
     }
 
     public void close() {
-        if (alertSubscriber != null) {
-            alertSubscriber.unsubscribe();
+        events.stop();
+        writes.stop();
+        if (commandSubscriber.isSubscribed()) {
+            commandSubscriber.unsubscribe();
         }
         if (jedisPool != null && !jedisPool.isClosed()) {
+            releaseLease();
             jedisPool.close();
         }
     }
 
-    private static class DupeAlertSubscriber extends JedisPubSub {
-        private final ItemRegistry itemRegistry;
+    public record CacheStats(int size, int capacity, long hits, long misses) {
+
+        public double hitRate() {
+            final long lookups = hits + misses;
+            return lookups == 0L ? 0.0 : hits / (double) lookups;
+        }
+    }
+
+    public record StreamStats(long consumed, long merged, long lastEventMillis) {}
+
+    public record NetworkDuplicates(int count, long[] itemIds) {
+
+        static final NetworkDuplicates NONE = new NetworkDuplicates(0, new long[0]);
+    }
 
-        public DupeAlertSubscriber(ItemRegistry itemRegistry) {
-            this.itemRegistry = itemRegistry;
+    private static class CommandSubscriber extends BinaryJedisPubSub {
+        private final NearCache<Fingerprint, NetworkDuplicates> fingerprintCache;
+
+        public CommandSubscriber(NearCache<Fingerprint, NetworkDuplicates> fingerprintCache) {
+            this.fingerprintCache = fingerprintCache;
         }
 
         @Override
-        public void onMessage(String channel, String message) {
-            if ("antidupe:alerts".equals(channel)) {
-                handleDupeAlert(message);
+        public void onMessage(byte[] channel, byte[] message) {
+            if (Arrays.equals(COMMANDS_CHANNEL, channel)
+                    && RedisPayloads.isType(message, RedisPayloads.INVALIDATE_FINGERPRINTS)) {
+                handleInvalidation(message);
             }
         }
 
-        private void handleDupeAlert(String message) {
+        private void handleInvalidation(byte[] message) {
             try {
-                String[] parts = message.split("\\|");
-                if (parts.length >= 4) {
-                    String serverName = parts[0];
-                    String playerName = parts[1];
-                    long itemId = Long.parseLong(parts[2]);
-                    int duplicateCount = Integer.parseInt(parts[3]);
-
-
-                    System.out.println("[Network Alert] " + serverName + ": " + playerName +
-                            " detected with " + duplicateCount + " duplicates (ID: " + itemId + ")");
+                for (Fingerprint fingerprint : RedisPayloads.decodeInvalidation(message)) {
+                    fingerprintCache.invalidate(fingerprint);
                 }
             } catch (Exception e) {
-                System.err.println("Failed to process dupe alert: " + e.getMessage());
+                fingerprintCache.clear();
+                System.err.println("Failed to process cache invalidation: " + e.getMessage());
             }
         }
     }
 }
-
-/*
-Add an SQLite and MySQL fall back (URGENT)
- */
\ No newline at end of file
@@ -0,0 +1,304 @@
+package dev.aari.antidupe.redis;
+
+import dev.aari.antidupe.data.ItemActionType;
+import dev.aari.antidupe.util.Fingerprint;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+final class RedisPayloads {
+
+    static final byte VERSION = 1;
+    static final byte ALERT = 1;
+    static final byte ITEM = 2;
+    static final byte HISTORY = 3;
+    static final byte INVALIDATE_FINGERPRINTS = 4;
+    static final byte REGISTER = 5;
+    static final byte REMOVE = 6;
+    static final byte ACTION = 7;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(Writer::new);
+
+    private RedisPayloads() {}
+
+    static byte[] encodeAlert(String server, String player, long itemId, int duplicateCount) {
+        return WRITERS.get().begin(ALERT)
+                .putString(server)
+                .putString(player)
+                .putLong(itemId)
+                .putVarLong(duplicateCount)
+                .toByteArray();
+    }
+
+    static byte[] encodeItem(long fingerprintHigh, long fingerprintLow, long timestamp, int networkCreatorId) {
+        return WRITERS.get().begin(ITEM)
+                .putLong(fingerprintHigh)
+                .putLong(fingerprintLow)
+                .putVarLong(timestamp)
+                .putVarLong(networkCreatorId)
+                .toByteArray();
+    }
+
+    static byte[] encodeHistory(long itemId, String action, String player, String server, long timestamp) {
+        final ItemActionType type = ItemActionType.fromName(action);
+        final Writer writer = WRITERS.get().begin(HISTORY)
+                .putLong(itemId)
+                .putVarLong(type.ordinal());
+        if (type == ItemActionType.UNKNOWN) {
+            writer.putString(action);
+        }
+        return writer.putString(player)
+                .putString(server)
+                .putVarLong(timestamp)
+                .toByteArray();
+    }
+
+    static byte[] encodeInvalidation(Collection<Fingerprint> fingerprints) {
+        final Writer writer = WRITERS.get().begin(INVALIDATE_FINGERPRINTS).putVarLong(fingerprints.size());
+        for (final Fingerprint fingerprint : fingerprints) {
+            writer.putLong(fingerprint.high()).putLong(fingerprint.low());
+        }
+        return writer.toByteArray();
+    }
+
+    static byte[] encodeRegistration(String origin, long itemId, long fingerprintHigh, long fingerprintLow,
+                                     long timestamp, String creator, String itemType) {
+        return WRITERS.get().begin(REGISTER)
+                .putString(origin)
+                .putLong(itemId)
+                .putLong(fingerprintHigh)
+                .putLong(fingerprintLow)
+                .putVarLong(timestamp)
+                .putString(creator)
+                .putString(itemType)
+                .toByteArray();
+    }
+
+    static byte[] encodeRemoval(String origin, long itemId) {
+        return WRITERS.get().begin(REMOVE)
+                .putString(origin)
+                .putLong(itemId)
+                .toByteArray();
+    }
+
+    static byte[] encodeAction(String origin, long itemId, long timestamp, ItemActionType action, String player) {
+        return WRITERS.get().begin(ACTION)
+                .putString(origin)
+                .putLong(itemId)
+                .putVarLong(timestamp)
+                .putVarLong(action.ordinal())
+                .putString(player)
+                .toByteArray();
+    }
+
+    static boolean isType(byte[] payload, byte type) {
+        return payload.length >= 2 && payload[0] == VERSION && payload[1] == type;
+    }
+
+    static byte typeOf(byte[] payload) {
+        return payload.length >= 2 && payload[0] == VERSION ? payload[1] : -1;
+    }
+
+    static Alert decodeAlert(byte[] payload) {
+        final Reader reader = new Reader(payload, ALERT);
+        return new Alert(reader.getString(), reader.getString(), reader.getLong(), (int) reader.getVarLong());
+    }
+
+    static Item decodeItem(byte[] payload) {
+        final Reader reader = new Reader(payload, ITEM);
+        return new Item(reader.getLong(), reader.getLong(), reader.getVarLong(), (int) reader.getVarLong());
+    }
+
+    static History decodeHistory(byte[] payload) {
+        final Reader reader = new Reader(payload, HISTORY);
+        final long itemId = reader.getLong();
+        final ItemActionType type = ItemActionType.fromOrdinal((int) reader.getVarLong());
+        final String action = type == ItemActionType.UNKNOWN ? reader.getString() : type.name();
+        return new History(itemId, action, reader.getString(), reader.getString(), reader.getVarLong());
+    }
+
+    static Fingerprint[] decodeInvalidation(byte[] payload) {
+        final Reader reader = new Reader(payload, INVALIDATE_FINGERPRINTS);
+        final long count = reader.getVarLong();
+        if (count < 0L || count > (payload.length - 2) / Fingerprint.BYTES) {
+            throw new IllegalArgumentException("Invalid fingerprint count " + count);
+        }
+        final Fingerprint[] fingerprints = new Fingerprint[(int) count];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = new Fingerprint(reader.getLong(), reader.getLong());
+        }
+        return fingerprints;
+    }
+
+    static Registration decodeRegistration(byte[] payload) {
+        final Reader reader = new Reader(payload, REGISTER);
+        return new Registration(reader.getString(), reader.getLong(), reader.getLong(), reader.getLong(),
+                reader.getVarLong(), reader.getString(), reader.getString());
+    }
+
+    static Removal decodeRemoval(byte[] payload) {
+        final Reader reader = new Reader(payload, REMOVE);
+        return new Removal(reader.getString(), reader.getLong());
+    }
+
+    static Action decodeAction(byte[] payload) {
+        final Reader reader = new Reader(payload, ACTION);
+        return new Action(reader.getString(), reader.getLong(), reader.getVarLong(),
+                ItemActionType.fromOrdinal((int) reader.getVarLong()), reader.getString());
+    }
+
+    record Alert(String server, String player, long itemId, int duplicateCount) {}
+
+    record Item(long fingerprintHigh, long fingerprintLow, long timestamp, int networkCreatorId) {}
+
+    record History(long itemId, String action, String player, String server, long timestamp) {}
+
+    record Registration(String origin, long itemId, long fingerprintHigh, long fingerprintLow, long timestamp,
+                        String creator, String itemType) {}
+
+    record Removal(String origin, long itemId) {}
+
+    record Action(String origin, long itemId, long timestamp, ItemActionType action, String player) {}
+
+    private static final class Writer {
+
+        private byte[] buffer = new byte[256];
+        private int length;
+
+        Writer begin(byte type) {
+            length = 0;
+            ensureCapacity(2);
+            buffer[length++] = VERSION;
+            buffer[length++] = type;
+            return this;
+        }
+
+        Writer putLong(long value) {
+            ensureCapacity(Long.BYTES);
+            LONGS.set(buffer, length, value);
+            length += Long.BYTES;
+            return this;
+        }
+
+        Writer putVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0L) {
+                buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+            return this;
+        }
+
+        Writer putString(String value) {
+            final int chars = value.length();
+            putVarLong(utf8Length(value));
+            ensureCapacity(chars * 3);
+            for (int i = 0; i < chars; i++) {
+                final char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[length++] = (byte) (0xC0 | c >> 6);
+                    buffer[length++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[length++] = (byte) (0xF0 | codePoint >> 18);
+                    buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    buffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    buffer[length++] = '?';
+                } else {
+                    buffer[length++] = (byte) (0xE0 | c >> 12);
+                    buffer[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    buffer[length++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+
+        private static int utf8Length(String value) {
+            final int chars = value.length();
+            int bytes = 0;
+            for (int i = 0; i < chars; i++) {
+                final char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes++;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    bytes += 4;
+                    i++;
+                } else {
+                    bytes += Character.isSurrogate(c) ? 1 : 3;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] payload;
+        private int position;
+
+        Reader(byte[] payload, byte type) {
+            this.payload = payload;
+            if (!isType(payload, type)) {
+                throw new IllegalArgumentException("Unsupported payload (version "
+                        + (payload.length > 0 ? payload[0] : -1) + ", type " + (payload.length > 1 ? payload[1] : -1) + ")");
+            }
+            this.position = 2;
+        }
+
+        long getLong() {
+            require(Long.BYTES);
+            final long value = (long) LONGS.get(payload, position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        long getVarLong() {
+            long value = 0L;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                require(1);
+                final byte b = payload[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed varint at " + position);
+        }
+
+        String getString() {
+            final long bytes = getVarLong();
+            if (bytes < 0L || bytes > payload.length - position) {
+                throw new IllegalArgumentException("Truncated payload at " + position);
+            }
+            final String value = new String(payload, position, (int) bytes, StandardCharsets.UTF_8);
+            position += (int) bytes;
+            return value;
+        }
+
+        private void require(int bytes) {
+            if (position + bytes > payload.length) {
+                throw new IllegalArgumentException("Truncated payload at " + position);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package dev.aari.antidupe.redis;
+
+import dev.aari.antidupe.data.ItemRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+final class RedisWriteQueue {
+
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Write> queue;
+    private final BatchWriter target;
+    private final LongAdder dropped = new LongAdder();
+    private volatile Thread writer;
+    private volatile boolean accepting;
+
+    RedisWriteQueue(int batchSize, long maxDelayMillis, int capacity, BatchWriter target) {
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxDelayMillis));
+        this.queue = new ArrayBlockingQueue<>(Math.max(this.batchSize, capacity));
+        this.target = target;
+    }
+
+    void start() {
+        this.writer = new Thread(this::drain, "AntiDupe-Redis");
+        writer.setDaemon(true);
+        accepting = true;
+        writer.start();
+    }
+
+    CompletableFuture<Void> syncItem(ItemRegistry.TrackedItem item) {
+        return enqueue(new SyncItem(item, new CompletableFuture<>()));
+    }
+
+    CompletableFuture<Void> removeItem(ItemRegistry.TrackedItem item) {
+        return enqueue(new RemoveItem(item, new CompletableFuture<>()));
+    }
+
+    CompletableFuture<Void> appendHistory(long itemId, byte[] entry) {
+        return enqueue(new AppendHistory(itemId, entry, new CompletableFuture<>()));
+    }
+
+    CompletableFuture<List<Object>> indexFingerprint(ItemRegistry.TrackedItem item) {
+        final IndexFingerprint write = new IndexFingerprint(item, new CompletableFuture<>(), new CompletableFuture<>());
+        write.done().whenComplete((ignored, error) -> {
+            if (error != null) {
+                write.reply().completeExceptionally(error);
+            }
+        });
+        enqueue(write);
+        return write.reply();
+    }
+
+    CompletableFuture<Void> appendEvent(byte[] payload) {
+        return enqueue(new AppendEvent(payload, new CompletableFuture<>()));
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    void stop() {
+        final Thread current = writer;
+        if (current == null) return;
+
+        accepting = false;
+        try {
+            queue.put(new Stop(new CompletableFuture<>()));
+            current.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    private CompletableFuture<Void> enqueue(Write write) {
+        if (!accepting || !queue.offer(write)) {
+            dropped.increment();
+            write.done().completeExceptionally(new IllegalStateException("Redis write queue is full or closed"));
+        }
+        return write.done();
+    }
+
+    private void drain() {
+        final List<Write> batch = new ArrayList<>(batchSize);
+        boolean running = true;
+        long reportedDrops = 0L;
+        try {
+            while (running) {
+                collect(batch);
+                running = batch.stream().noneMatch(Stop.class::isInstance);
+
+                try {
+                    if (running || batch.size() > 1) {
+                        target.write(batch);
+                    }
+                    batch.forEach(write -> write.done().complete(null));
+                } catch (Exception e) {
+                    System.err.println("Redis batch of " + batch.size() + " writes failed: " + e.getMessage());
+                    batch.forEach(write -> write.done().completeExceptionally(e));
+                }
+                batch.clear();
+
+                final long drops = dropped.sum();
+                if (drops != reportedDrops) {
+                    System.err.println("Redis write queue full, dropped " + (drops - reportedDrops) + " writes");
+                    reportedDrops = drops;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collect(List<Write> batch) throws InterruptedException {
+        batch.add(queue.take());
+        final long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < batchSize && !(batch.getLast() instanceof Stop)) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize || batch.getLast() instanceof Stop) return;
+            if (batch.stream().anyMatch(IndexFingerprint.class::isInstance)) return; // a registration is waiting on it
+
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) return;
+
+            final Write next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+    interface BatchWriter {
+        void write(List<Write> batch) throws Exception;
+    }
+
+    sealed interface Write permits SyncItem, IndexFingerprint, RemoveItem, AppendHistory, AppendEvent, Stop {
+        CompletableFuture<Void> done();
+    }
+
+    record SyncItem(ItemRegistry.TrackedItem item, CompletableFuture<Void> done) implements Write {}
+
+    record IndexFingerprint(ItemRegistry.TrackedItem item, CompletableFuture<List<Object>> reply,
+                            CompletableFuture<Void> done) implements Write {}
+
+    record RemoveItem(ItemRegistry.TrackedItem item, CompletableFuture<Void> done) implements Write {}
+
+    record AppendHistory(long itemId, byte[] entry, CompletableFuture<Void> done) implements Write {}
+
+    record AppendEvent(byte[] payload, CompletableFuture<Void> done) implements Write {}
+
+    record Stop(CompletableFuture<Void> done) implements Write {}
+}
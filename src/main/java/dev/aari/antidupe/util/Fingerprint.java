@@ -0,0 +1,49 @@
+package dev.aari.antidupe.util;
+
+public record Fingerprint(long high, long low) {
+
+    public static final Fingerprint EMPTY = new Fingerprint(0L, 0L);
+    public static final int BYTES = 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public static Fingerprint fromBytes(byte[] bytes) {
+        return new Fingerprint(readLong(bytes, 0), readLong(bytes, 8));
+    }
+
+    public static Fingerprint fromHex(String hex) {
+        if (hex.length() < BYTES * 2) {
+            return EMPTY;
+        }
+        return new Fingerprint(
+                Long.parseUnsignedLong(hex.substring(0, 16), 16),
+                Long.parseUnsignedLong(hex.substring(16, 32), 16));
+    }
+
+    public String toHex() {
+        final char[] chars = new char[BYTES * 2];
+        writeHex(chars, 0, high);
+        writeHex(chars, 16, low);
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0L;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
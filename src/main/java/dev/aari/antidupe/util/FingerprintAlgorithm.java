@@ -0,0 +1,30 @@
+package dev.aari.antidupe.util;
+
+public enum FingerprintAlgorithm {
+    MURMUR3(1),
+    SHA256(2);
+
+    private final int id;
+
+    FingerprintAlgorithm(int id) {
+        this.id = id;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public static FingerprintAlgorithm fromId(int id) {
+        for (final FingerprintAlgorithm algorithm : values()) {
+            if (algorithm.id == id) return algorithm;
+        }
+        return SHA256;
+    }
+
+    public static FingerprintAlgorithm fromConfig(String name) {
+        return switch (name.toLowerCase().replace("-", "")) {
+            case "sha256" -> SHA256;
+            default -> MURMUR3;
+        };
+    }
+}
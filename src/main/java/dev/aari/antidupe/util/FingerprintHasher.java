@@ -0,0 +1,128 @@
+package dev.aari.antidupe.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+final class FingerprintHasher {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private byte[] buffer = new byte[512];
+    private int length;
+    private MessageDigest sha256;
+
+    FingerprintHasher reset() {
+        length = 0;
+        return this;
+    }
+
+    FingerprintHasher putInt(int value) {
+        ensureCapacity(Integer.BYTES + 1);
+        buffer[length++] = '|';
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+        return this;
+    }
+
+    FingerprintHasher putString(String value) {
+        final int chars = value.length();
+        ensureCapacity(chars * 2 + 1);
+        buffer[length++] = '|';
+        for (int i = 0; i < chars; i++) {
+            final char c = value.charAt(i);
+            buffer[length++] = (byte) (c >>> 8);
+            buffer[length++] = (byte) c;
+        }
+        return this;
+    }
+
+    Fingerprint finish(FingerprintAlgorithm algorithm) {
+        return algorithm == FingerprintAlgorithm.SHA256 ? sha256() : murmur3();
+    }
+
+    private Fingerprint sha256() {
+        if (sha256 == null) {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        sha256.update(buffer, 0, length);
+        return Fingerprint.fromBytes(sha256.digest());
+    }
+
+    private Fingerprint murmur3() {
+        final int blocks = length >>> 4;
+        long h1 = 0L;
+        long h2 = 0L;
+
+        for (int i = 0; i < blocks; i++) {
+            final long k1 = (long) LONGS.get(buffer, i << 4);
+            final long k2 = (long) LONGS.get(buffer, (i << 4) + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0L;
+        long k2 = 0L;
+        final int tail = blocks << 4;
+        for (int i = length - tail - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (buffer[tail + i] & 0xFFL);
+        }
+        for (int i = Math.min(7, length - tail - 1); i >= 0; i--) {
+            k1 = (k1 << 8) | (buffer[tail + i] & 0xFFL);
+        }
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        return new Fingerprint(h1, h2);
+    }
+
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (length + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+        }
+    }
+}
@@ -1,62 +1,58 @@
 package dev.aari.antidupe.util;
 
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Objects;
+import java.util.List;
 
 public final class ItemIdentifier {
 
     public static final NamespacedKey ITEM_ID_KEY = new NamespacedKey("antidupe", "item_id");
-    private static final MessageDigest SHA256;
+    public static final int FINGERPRINT_FORMAT = 2; // bump whenever the hashed pre-image changes
+    // Lossless: hex colours, fonts, click/hover events, insertions and translation arguments all hash
+    private static final GsonComponentSerializer SERIALIZER = GsonComponentSerializer.gson();
+    private static final ThreadLocal<FingerprintHasher> HASHERS = ThreadLocal.withInitial(FingerprintHasher::new);
+    private static volatile FingerprintAlgorithm algorithm = FingerprintAlgorithm.MURMUR3;
 
-    static {
-        try {
-            SHA256 = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
-        }
+    private ItemIdentifier() {}
+
+    public static void setAlgorithm(FingerprintAlgorithm algorithm) {
+        ItemIdentifier.algorithm = algorithm;
     }
 
-    private ItemIdentifier() {}
+    public static FingerprintAlgorithm getAlgorithm() {
+        return algorithm;
+    }
 
-    public static String createFingerprint(ItemStack item) {
-        if (item == null || item.getType().isAir()) {
-            return "";
-        }
+    public static Fingerprint createFingerprint(ItemStack item) {
+        final ItemSnapshot snapshot = ItemSnapshot.capture(item);
+        return snapshot == null ? Fingerprint.EMPTY : createFingerprint(snapshot);
+    }
 
-        StringBuilder builder = new StringBuilder(256);
-        builder.append(item.getType().name())
-                .append('|')
-                .append(item.getAmount());
+    public static Fingerprint createFingerprint(ItemSnapshot snapshot) {
+        final FingerprintHasher hasher = HASHERS.get().reset()
+                .putString(snapshot.type())
+                .putInt(snapshot.amount());
 
-        ItemMeta meta = item.getItemMeta();
-        if (meta != null) {
-            if (meta.hasDisplayName()) {
-                builder.append('|').append(meta.displayName());
-            }
-            if (meta.hasLore()) {
-                builder.append('|').append(Objects.toString(meta.lore()));
-            }
-            if (meta.hasEnchants()) {
-                meta.getEnchants().forEach((enchant, level) ->
-                        builder.append('|').append(enchant.getKey()).append(':').append(level));
-            }
-            if (meta.hasCustomModelData()) {
-                builder.append('|').append(meta.getCustomModelData());
-            }
+        if (snapshot.displayName() != null) {
+            hasher.putString(SERIALIZER.serialize(snapshot.displayName()));
         }
-
-        synchronized (SHA256) {
-            SHA256.reset();
-            byte[] hash = SHA256.digest(builder.toString().getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
+        final List<Component> lore = snapshot.lore();
+        for (int i = 0; i < lore.size(); i++) {
+            hasher.putString(SERIALIZER.serialize(lore.get(i)));
+        }
+        for (int i = 0; i < snapshot.enchantKeys().length; i++) {
+            hasher.putString(snapshot.enchantKeys()[i]).putInt(snapshot.enchantLevels()[i]);
+        }
+        if (snapshot.customModelData() != null) {
+            hasher.putInt(snapshot.customModelData());
         }
+
+        return hasher.finish(algorithm);
     }
 
     public static void markItem(ItemStack item, long id) {
@@ -77,12 +73,4 @@ public final class ItemIdentifier {
 
         return meta.getPersistentDataContainer().get(ITEM_ID_KEY, PersistentDataType.LONG);
     }
-
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package dev.aari.antidupe.util;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.List;
+import java.util.Map;
+
+public record ItemSnapshot(String type, int amount, Long itemId, Component displayName, List<Component> lore,
+                           String[] enchantKeys, int[] enchantLevels, Integer customModelData) {
+
+    private static final String[] NO_ENCHANT_KEYS = new String[0];
+    private static final int[] NO_ENCHANT_LEVELS = new int[0];
+
+    public static ItemSnapshot capture(ItemStack item) {
+        if (item == null || item.getType().isAir()) return null;
+
+        final String type = item.getType().name();
+        final ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
+            return new ItemSnapshot(type, item.getAmount(), null, null, List.of(),
+                    NO_ENCHANT_KEYS, NO_ENCHANT_LEVELS, null);
+        }
+
+        String[] enchantKeys = NO_ENCHANT_KEYS;
+        int[] enchantLevels = NO_ENCHANT_LEVELS;
+        if (meta.hasEnchants()) {
+            final Map<Enchantment, Integer> enchants = meta.getEnchants();
+            enchantKeys = new String[enchants.size()];
+            enchantLevels = new int[enchants.size()];
+            int i = 0;
+            for (final Map.Entry<Enchantment, Integer> entry : enchants.entrySet()) {
+                enchantKeys[i] = entry.getKey().getKey().toString();
+                enchantLevels[i++] = entry.getValue();
+            }
+        }
+
+        return new ItemSnapshot(type, item.getAmount(),
+                meta.getPersistentDataContainer().get(ItemIdentifier.ITEM_ID_KEY, PersistentDataType.LONG),
+                meta.hasDisplayName() ? meta.displayName() : null,
+                meta.hasLore() ? List.copyOf(meta.lore()) : List.of(),
+                enchantKeys, enchantLevels,
+                meta.hasCustomModelData() ? meta.getCustomModelData() : null);
+    }
+}
@@ -0,0 +1,102 @@
+package dev.aari.antidupe.data;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Contention benchmark for the registry maps, run with {@code java -cp ... RegistryContentionBenchmark [threads]}.
+ * Compares the striped {@link ConcurrentLongMap} with the original monitor-guarded fastutil map under a
+ * 75% read / 25% write mix, and measures building then draining one hot fingerprint in the
+ * {@link FingerprintIndex} against the copy-on-write id arrays it replaced.
+ */
+public final class RegistryContentionBenchmark {
+
+    private static final int OPS_PER_THREAD = 2_000_000;
+    private static final int KEY_SPACE = 1 << 20;
+    private static final int HOT_IDS = 20_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+        for (int round = 0; round < 3; round++) {
+            final Long2ObjectOpenHashMap<Long> monitorMap = new Long2ObjectOpenHashMap<>(8192);
+            report("synchronized Long2ObjectOpenHashMap", threads, run(threads, key -> {
+                synchronized (monitorMap) {
+                    return monitorMap.get(key);
+                }
+            }, key -> {
+                synchronized (monitorMap) {
+                    monitorMap.put(key, Long.valueOf(key));
+                }
+            }));
+
+            final ConcurrentLongMap<Long> stripedMap = new ConcurrentLongMap<>(8192, 64);
+            report("ConcurrentLongMap", threads, run(threads, stripedMap::get, key -> stripedMap.put(key, key)));
+
+            hotFingerprint();
+        }
+    }
+
+    private static long run(int threads, LongFunction<Long> read, LongConsumer write)
+            throws InterruptedException {
+        final Thread[] workers = new Thread[threads];
+        final long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final long seedBase = t * 7919L + 1L;
+            workers[t] = new Thread(() -> {
+                long seed = seedBase;
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    seed = seed * 6364136223846793005L + 1442695040888963407L;
+                    final long key = (seed >>> 40) & (KEY_SPACE - 1);
+                    if ((i & 3) == 0) {
+                        write.accept(key);
+                    } else {
+                        read.apply(key);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void hotFingerprint() {
+        long start = System.nanoTime();
+        long[] copyOnWrite = new long[0];
+        for (long id = 1; id <= HOT_IDS; id++) {
+            copyOnWrite = Arrays.copyOf(copyOnWrite, copyOnWrite.length + 1);
+            copyOnWrite[copyOnWrite.length - 1] = id;
+        }
+        for (long id = 1; id <= HOT_IDS; id++) {
+            final long[] shrunk = new long[copyOnWrite.length - 1]; // oldest id sits at the head
+            System.arraycopy(copyOnWrite, 1, shrunk, 0, shrunk.length);
+            copyOnWrite = shrunk;
+        }
+        final long copyOnWriteNanos = System.nanoTime() - start;
+
+        final FingerprintIndex index = new FingerprintIndex(16, 16);
+        start = System.nanoTime();
+        for (long id = 1; id <= HOT_IDS; id++) {
+            index.add(42L, id);
+        }
+        final int built = index.get(42L).length;
+        for (long id = 1; id <= HOT_IDS; id++) {
+            index.remove(42L, id);
+        }
+        final long indexNanos = System.nanoTime() - start;
+
+        System.out.printf("hot fingerprint, %d ids: copy-on-write arrays %d ms, FingerprintIndex %d ms (built %d, left %d)%n",
+                HOT_IDS, copyOnWriteNanos / 1_000_000, indexNanos / 1_000_000, built, index.get(42L).length);
+    }
+
+    private static void report(String name, int threads, long nanos) {
+        System.out.printf("%-36s %2d threads %6.1f Mops/s%n", name, threads,
+                (double) threads * OPS_PER_THREAD / nanos * 1_000.0);
+    }
+}
@@ -0,0 +1,84 @@
+package dev.aari.antidupe.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snapshot codec benchmark, run with {@code java -cp ... SnapshotCodecBenchmark [items]}. Writes and loads the
+ * same synthetic registry with every {@link SnapshotCodec} and reports file size, compression ratio against the
+ * raw 40-byte records, and write and load throughput in MB/s of raw record data.
+ */
+public final class SnapshotCodecBenchmark {
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+    private static final long WEEK_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    public static void main(String[] args) throws IOException {
+        final int items = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final HeapItemStore store = registry(items);
+        final long rawBytes = (long) store.size() * SnapshotLoader.RECORD_BYTES;
+        final Path directory = Files.createTempDirectory("antidupe-codec-bench");
+
+        try {
+            for (final SnapshotCodec codec : SnapshotCodec.values()) {
+                final Path file = directory.resolve("items-" + codec.name().toLowerCase() + ".dat");
+                for (int run = 0; run < WARMUP_RUNS; run++) {
+                    write(file, codec, store);
+                    load(file);
+                }
+
+                long start = System.nanoTime();
+                for (int run = 0; run < MEASURED_RUNS; run++) {
+                    write(file, codec, store);
+                }
+                final long writeNanos = (System.nanoTime() - start) / MEASURED_RUNS;
+
+                long loaded = 0L;
+                start = System.nanoTime();
+                for (int run = 0; run < MEASURED_RUNS; run++) {
+                    loaded = load(file);
+                }
+                final long loadNanos = (System.nanoTime() - start) / MEASURED_RUNS;
+
+                final long size = Files.size(file);
+                System.out.printf("%-8s %8.1f MB  ratio %.3f  write %7.1f MB/s  load %7.1f MB/s  (%d records)%n",
+                        codec, size / 1e6, size / (double) rawBytes,
+                        throughput(rawBytes, writeNanos), throughput(rawBytes, loadNanos), loaded);
+                Files.delete(file);
+            }
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // Snowflake-style ids, a week of timestamps and a few thousand creators, like a busy server's registry
+    private static HeapItemStore registry(int items) {
+        final Random random = new Random(42L);
+        final HeapItemStore store = new HeapItemStore(items, 16);
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < items; i++) {
+            final long id = ((now + i) << 22) | (random.nextInt(1024) << 12) | (i & 0xFFF);
+            store.put(new ItemRegistry.TrackedItem(id, random.nextLong(), random.nextLong(),
+                    now - (long) (random.nextDouble() * WEEK_MILLIS), random.nextInt(2000), random.nextInt(300)));
+        }
+        return store;
+    }
+
+    private static void write(Path file, SnapshotCodec codec, ItemStore store) throws IOException {
+        new SnapshotWriter(file, SnapshotLoader.BLOCK_RECORDS, codec).write(store);
+    }
+
+    private static long load(Path file) throws IOException {
+        final AtomicLong sink = new AtomicLong();
+        return new SnapshotLoader(file, 4 << 20, Runtime.getRuntime().availableProcessors(), name -> 0)
+                .load(item -> sink.incrementAndGet());
+    }
+
+    private static double throughput(long bytes, long nanos) {
+        return bytes / 1e6 / (nanos / 1e9);
+    }
+}
@@ -0,0 +1,112 @@
+package dev.aari.antidupe.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the shared SQL engine against an in-memory H2 database in MySQL compatibility mode, so the
+ * upsert, delete and fingerprint lookup statements are checked without a MySQL server.
+ */
+class SqlItemStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private String url;
+    private NameDictionary creators;
+    private NameDictionary itemTypes;
+    private SqlItemStore store;
+
+    @BeforeEach
+    void open() throws IOException {
+        url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        creators = new NameDictionary(directory.resolve("creators.dat"));
+        creators.open();
+        itemTypes = new NameDictionary(directory.resolve("item-types.dat"));
+        itemTypes.open();
+        store = openStore();
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        store.close();
+        creators.close();
+        itemTypes.close();
+    }
+
+    @Test
+    void upsertReplacesExistingRows() throws IOException {
+        final ItemRegistry.TrackedItem first = item(1L, 10L, 20L, "Steve");
+        assertNull(store.put(first));
+        assertNull(store.put(item(2L, 10L, 20L, "Alex")));
+        assertEquals(first, store.put(item(1L, 11L, 21L, "Steve")));
+        store.flush();
+
+        final SqlItemStore reopened = reopen();
+        assertEquals(2, reopened.size());
+        assertEquals(item(1L, 11L, 21L, "Steve"), reopened.get(1L));
+        assertEquals(item(1L, 11L, 21L, "Steve"), reopened.put(item(1L, 12L, 22L, "Steve")));
+    }
+
+    @Test
+    void deleteRemovesItemsAndHistory() throws IOException {
+        store.put(item(1L, 10L, 20L, "Steve"));
+        store.put(item(2L, 10L, 20L, "Steve"));
+        store.appendAction(1L, 1000L, ItemActionType.fromOrdinal(0), creators.idOf("Steve"));
+        store.flush();
+        assertEquals(1, store.latestActions(1L, 10).size());
+
+        final SqlItemStore reopened = reopen();
+        assertEquals(item(1L, 10L, 20L, "Steve"), reopened.remove(1L));
+        assertNull(reopened.remove(1L));
+        assertNull(reopened.remove(3L));
+        assertNull(reopened.get(1L));
+        reopened.flush();
+
+        assertNull(reopened.get(1L));
+        assertTrue(reopened.latestActions(1L, 10).isEmpty());
+        assertEquals(1, reopened.size());
+    }
+
+    @Test
+    void findsItemsByFingerprint() throws IOException {
+        store.put(item(1L, 10L, 20L, "Steve"));
+        store.put(item(2L, 10L, 20L, "Alex"));
+        store.put(item(3L, 10L, 21L, "Alex"));
+        store.flush();
+
+        final List<ItemRegistry.TrackedItem> found = store.findByFingerprint(10L, 20L);
+        assertEquals(2, found.size());
+        assertTrue(found.contains(item(1L, 10L, 20L, "Steve")));
+        assertTrue(found.contains(item(2L, 10L, 20L, "Alex")));
+        assertTrue(store.findByFingerprint(11L, 20L).isEmpty());
+    }
+
+    private SqlItemStore reopen() throws IOException {
+        store.close();
+        store = openStore();
+        return store;
+    }
+
+    private SqlItemStore openStore() throws IOException {
+        final SqlItemStore opened = new SqlItemStore(new JdbcConnectionPool(url, "sa", "", 2, 1000L),
+                creators, itemTypes, 64, 1024, 4);
+        opened.open();
+        return opened;
+    }
+
+    private ItemRegistry.TrackedItem item(long id, long high, long low, String creator) {
+        return new ItemRegistry.TrackedItem(id, high, low, 1000L + id, creators.idOf(creator), itemTypes.idOf("STONE"));
+    }
+}
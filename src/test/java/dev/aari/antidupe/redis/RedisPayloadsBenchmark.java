@@ -0,0 +1,88 @@
+package dev.aari.antidupe.redis;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format benchmark, run with {@code java -cp ... RedisPayloadsBenchmark [operations]}. Times an encode and
+ * decode round trip of alert and history payloads in the binary {@link RedisPayloads} format against the
+ * {@code String.format} / {@code split("\\|")} text payloads it replaced, and reports bytes allocated per round
+ * trip and payload size.
+ */
+public final class RedisPayloadsBenchmark {
+
+    private static final String SERVER = "survival-1";
+    private static final String PLAYER = "Notch";
+    private static final String ACTION = "PICKUP";
+    private static final long ITEM_ID = 7_318_349_394_477_056L;
+
+    private static long blackhole;
+
+    public static void main(String[] args) {
+        final int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        for (int round = 0; round < 3; round++) {
+            report("alert, String.format + split", operations, RedisPayloadsBenchmark::textAlert);
+            report("alert, RedisPayloads", operations, RedisPayloadsBenchmark::binaryAlert);
+            report("history, String.format + split", operations, RedisPayloadsBenchmark::textHistory);
+            report("history, RedisPayloads", operations, RedisPayloadsBenchmark::binaryHistory);
+        }
+        if (blackhole == 42L) {
+            System.out.println();
+        }
+    }
+
+    private static int textAlert(int i) {
+        final byte[] payload = String.format("%s|%s|%d|%d", SERVER, PLAYER, ITEM_ID + i, i & 63)
+                .getBytes(StandardCharsets.UTF_8);
+        final String[] parts = new String(payload, StandardCharsets.UTF_8).split("\\|");
+        blackhole += Long.parseLong(parts[2]) + Integer.parseInt(parts[3]) + parts[0].length() + parts[1].length();
+        return payload.length;
+    }
+
+    private static int binaryAlert(int i) {
+        final byte[] payload = RedisPayloads.encodeAlert(SERVER, PLAYER, ITEM_ID + i, i & 63);
+        final RedisPayloads.Alert alert = RedisPayloads.decodeAlert(payload);
+        blackhole += alert.itemId() + alert.duplicateCount() + alert.server().length() + alert.player().length();
+        return payload.length;
+    }
+
+    private static int textHistory(int i) {
+        final byte[] payload = String.format("%d|%s|%s|%s|%d", ITEM_ID + i, ACTION, PLAYER, SERVER, 1_700_000_000_000L + i)
+                .getBytes(StandardCharsets.UTF_8);
+        final String[] parts = new String(payload, StandardCharsets.UTF_8).split("\\|");
+        blackhole += Long.parseLong(parts[0]) + Long.parseLong(parts[4]) + parts[1].length() + parts[2].length()
+                + parts[3].length();
+        return payload.length;
+    }
+
+    private static int binaryHistory(int i) {
+        final byte[] payload = RedisPayloads.encodeHistory(ITEM_ID + i, ACTION, PLAYER, SERVER, 1_700_000_000_000L + i);
+        final RedisPayloads.History history = RedisPayloads.decodeHistory(payload);
+        blackhole += history.itemId() + history.timestamp() + history.action().length() + history.player().length()
+                + history.server().length();
+        return payload.length;
+    }
+
+    private static void report(String name, int operations, RoundTrip roundTrip) {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().threadId();
+
+        int size = 0;
+        final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        final long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            size = roundTrip.run(i);
+        }
+        final long nanos = System.nanoTime() - start;
+        final long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        System.out.printf("%-32s %6.1f ns/op %7.1f B/op %4d B payload%n", name,
+                nanos / (double) operations, allocated / (double) operations, size);
+    }
+
+    private interface RoundTrip {
+        int run(int i);
+    }
+}